@@ -11,6 +11,7 @@ import ca.on.oicr.gsi.shesmu.gsicommon.CerberusFileProvenanceSkippedValue;
 import ca.on.oicr.gsi.shesmu.gsicommon.CerberusFileProvenanceValue;
 import ca.on.oicr.gsi.shesmu.plugin.Definer;
 import ca.on.oicr.gsi.shesmu.plugin.ErrorableStream;
+import ca.on.oicr.gsi.shesmu.plugin.cache.RefreshMode;
 import ca.on.oicr.gsi.shesmu.plugin.cache.SimpleRecord;
 import ca.on.oicr.gsi.shesmu.plugin.cache.ValueCache;
 import ca.on.oicr.gsi.shesmu.plugin.input.ShesmuInputSource;
@@ -36,6 +37,8 @@ public final class CerberusPlugin extends JsonPluginFile<Configuration> {
 
     public FileProvenanceCache(String name) {
       super("cerberus-fpr " + name, 10, SimpleRecord::new);
+      // Fetching all the file provenance is slow, so serve the previous records while refreshing
+      refreshMode(RefreshMode.STALE_WHILE_REVALIDATE);
     }
 
     @Override
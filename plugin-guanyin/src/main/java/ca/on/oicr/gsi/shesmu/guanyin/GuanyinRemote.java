@@ -2,7 +2,8 @@ package ca.on.oicr.gsi.shesmu.guanyin;
 
 import ca.on.oicr.gsi.shesmu.plugin.Definer;
 import ca.on.oicr.gsi.shesmu.plugin.ErrorableStream;
-import ca.on.oicr.gsi.shesmu.plugin.cache.ReplacingRecord;
+import ca.on.oicr.gsi.shesmu.plugin.cache.RefreshMode;
+import ca.on.oicr.gsi.shesmu.plugin.cache.SimpleRecord;
 import ca.on.oicr.gsi.shesmu.plugin.cache.ValueCache;
 import ca.on.oicr.gsi.shesmu.plugin.input.ShesmuInputSource;
 import ca.on.oicr.gsi.shesmu.plugin.json.JsonBodyHandler;
@@ -10,6 +11,8 @@ import ca.on.oicr.gsi.shesmu.plugin.json.JsonParameter;
 import ca.on.oicr.gsi.shesmu.plugin.json.JsonPluginFile;
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
 import ca.on.oicr.gsi.status.SectionRenderer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.net.URI;
@@ -17,22 +20,40 @@ import java.net.http.HttpClient.Version;
 import java.net.http.HttpRequest;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class GuanyinRemote extends JsonPluginFile<Configuration> {
 
-  private class ReportsCache extends ValueCache<Stream<GuanyinReportValue>> {
+  /**
+   * The records known to Guanyin
+   *
+   * @param values the records, for the input format
+   * @param index the most recently generated record for each set of parameters, grouped by report
+   *     ID; the parameters are in the form produced by {@link #parameterKey(JsonNode)}
+   */
+  private record Records(
+      List<GuanyinReportValue> values, Map<Long, Map<String, RecordDto>> index) {}
+
+  private class ReportsCache extends ValueCache<Optional<Records>> {
     public ReportsCache(Path fileName) {
-      super("guanyin-reports " + fileName, 20, ReplacingRecord::new);
+      super("guanyin-reports " + fileName, 20, SimpleRecord::new);
+      // Actions check this index, so they should not wait for the full record list to download
+      refreshMode(RefreshMode.STALE_WHILE_REVALIDATE);
     }
 
     @Override
-    protected Stream<GuanyinReportValue> fetch(Instant lastUpdated) throws Exception {
+    protected Optional<Records> fetch(Instant lastUpdated) throws Exception {
       if (configuration.isEmpty()) {
-        return new ErrorableStream<>(Stream.empty(), false);
+        return Optional.empty();
       }
       final var reportsResponse =
           RunReport.HTTP_CLIENT.send(
@@ -51,13 +72,39 @@ public class GuanyinRemote extends JsonPluginFile<Configuration> {
       final var reports =
           Stream.of(reportsResponse.body().get())
               .collect(Collectors.toMap(ReportDto::getId, Function.identity()));
-      return Stream.of(recordsResponse.body().get())
-          .map(dto -> new GuanyinReportValue(reports.get(dto.getReport()), dto));
+      final List<GuanyinReportValue> values = new ArrayList<>();
+      final Map<Long, Map<String, RecordDto>> index = new HashMap<>();
+      for (final var dto : recordsResponse.body().get()) {
+        values.add(new GuanyinReportValue(reports.get(dto.getReport()), dto));
+        // Records without a generation time can't be used by actions, so they will have to ask
+        // Guanyin directly
+        if (dto.getParameters() != null && dto.getGenerated() != null) {
+          index
+              .computeIfAbsent(dto.getReport(), k -> new HashMap<>())
+              .merge(
+                  parameterKey(dto.getParameters()),
+                  dto,
+                  BinaryOperator.maxBy(Comparator.comparing(RecordDto::getGenerated)));
+        }
+      }
+      return Optional.of(new Records(values, index));
     }
   }
 
   private static final ObjectMapper MAPPER = new ObjectMapper();
 
+  /**
+   * Convert a set of report parameters into a string that is the same for equivalent parameters
+   *
+   * <p>JSON nodes are not suitable because the order of the properties and the type used to store
+   * numbers depend on where the parameters came from.
+   */
+  private static String parameterKey(JsonNode parameters) throws JsonProcessingException {
+    // RunReport.MAPPER sorts map entries by key
+    return RunReport.MAPPER.writeValueAsString(
+        RunReport.MAPPER.treeToValue(parameters, Object.class));
+  }
+
   private Optional<Configuration> configuration = Optional.empty();
   private final Definer<GuanyinRemote> definer;
   private final ReportsCache reports;
@@ -78,6 +125,29 @@ public class GuanyinRemote extends JsonPluginFile<Configuration> {
         });
   }
 
+  /**
+   * Find the most recently generated existing record for a report using the records already
+   * downloaded from Guanyin
+   *
+   * <p>If a record is not found, it may have been created since the records were last downloaded,
+   * so Guanyin must be queried directly.
+   *
+   * @param reportId the report to search
+   * @param parameters the report parameters
+   */
+  public Optional<RecordDto> findRecord(long reportId, JsonNode parameters) {
+    try {
+      final var key = parameterKey(parameters);
+      return reports
+          .get()
+          .flatMap(records -> Optional.ofNullable(records.index().get(reportId)))
+          .flatMap(index -> Optional.ofNullable(index.get(key)));
+    } catch (Exception e) {
+      e.printStackTrace();
+      return Optional.empty();
+    }
+  }
+
   public int memory() {
     return configuration.get().getMemory();
   }
@@ -101,7 +171,9 @@ public class GuanyinRemote extends JsonPluginFile<Configuration> {
   @ShesmuInputSource
   public Stream<GuanyinReportValue> stream(boolean readStale) {
     try {
-      return readStale ? reports.getStale() : reports.get();
+      return (readStale ? reports.getStale() : reports.get())
+          .<Stream<GuanyinReportValue>>map(records -> records.values().stream())
+          .orElseGet(() -> new ErrorableStream<>(Stream.empty(), false));
     } catch (Exception e) {
       return new ErrorableStream<>(Stream.empty(), false);
     }
@@ -28,6 +28,7 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -224,6 +225,23 @@ public class RunReport extends JsonParameterisedAction {
     }
 
     var create = false;
+    // Most actions are for records that have already been generated, so check the records Guanyin
+    // has already provided and only ask it directly if the record isn't known
+    var checkGuanyin = true;
+    final var known = owner.get().findRecord(reportId, parameters);
+    if (known.isPresent()) {
+      try {
+        final var generated = ZonedDateTime.parse(known.get().getGenerated()).toInstant();
+        reportRecordId = OptionalLong.of(known.get().getId());
+        externalTimestamp = Optional.of(generated);
+        if (known.get().isFinished()) {
+          return ActionState.SUCCEEDED;
+        }
+        checkGuanyin = false;
+      } catch (final DateTimeParseException e) {
+        // The downloaded record can't be used, so ask Guanyin directly
+      }
+    }
     final var request =
         HttpRequest.newBuilder(
                 URI.create(
@@ -234,30 +252,32 @@ public class RunReport extends JsonParameterisedAction {
             .version(Version.HTTP_1_1)
             .POST(body)
             .build();
-    try (var timer = 观音RequestTime.start(owner.get().观音Url())) {
-      var response = HTTP_CLIENT.send(request, new JsonBodyHandler<>(MAPPER, RecordDto[].class));
-      if (response.statusCode() / 100 != 2) {
-        showError(response, request.uri());
+    if (checkGuanyin) {
+      try (var timer = 观音RequestTime.start(owner.get().观音Url())) {
+        var response = HTTP_CLIENT.send(request, new JsonBodyHandler<>(MAPPER, RecordDto[].class));
+        if (response.statusCode() / 100 != 2) {
+          showError(response, request.uri());
+          观音RequestErrors.labels(owner.get().观音Url()).inc();
+          return ActionState.FAILED;
+        }
+        final var results = response.body().get();
+        if (results.length > 0) {
+          final var record =
+              Stream.of(results).max(Comparator.comparing(RecordDto::getGenerated)).get();
+          reportRecordId = OptionalLong.of(record.getId());
+          externalTimestamp = Optional.of(ZonedDateTime.parse(record.getGenerated()).toInstant());
+          if (record.isFinished()) {
+            return ActionState.SUCCEEDED;
+          }
+        } else {
+          create = true;
+        }
+      } catch (final Exception e) {
+        e.printStackTrace();
+        this.errors = Collections.singletonList(e.getMessage());
         观音RequestErrors.labels(owner.get().观音Url()).inc();
         return ActionState.FAILED;
       }
-      final var results = response.body().get();
-      if (results.length > 0) {
-        final var record =
-            Stream.of(results).max(Comparator.comparing(RecordDto::getGenerated)).get();
-        reportRecordId = OptionalLong.of(record.getId());
-        externalTimestamp = Optional.of(ZonedDateTime.parse(record.getGenerated()).toInstant());
-        if (record.isFinished()) {
-          return ActionState.SUCCEEDED;
-        }
-      } else {
-        create = true;
-      }
-    } catch (final Exception e) {
-      e.printStackTrace();
-      this.errors = Collections.singletonList(e.getMessage());
-      观音RequestErrors.labels(owner.get().观音Url()).inc();
-      return ActionState.FAILED;
     }
     // At this point, either it exists and isn't complete or it doesn't exist.
     // Create it if it doesn't exist
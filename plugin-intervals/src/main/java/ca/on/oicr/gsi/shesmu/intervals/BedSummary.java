@@ -0,0 +1,159 @@
+package ca.on.oicr.gsi.shesmu.intervals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The total length of the intervals on each chromosome in a BED file
+ *
+ * <p>BED files can be very large, so rather than splitting every line into strings, the file is
+ * memory-mapped and scanned one byte at a time. Since BED files are normally sorted by chromosome,
+ * the chromosome name is only converted to a string when it changes.
+ *
+ * @param chromosomes the total length for each chromosome
+ * @param bad whether any of the intervals could not be parsed
+ */
+record BedSummary(Map<String, Long> chromosomes, boolean bad) {
+  private static final class Parser {
+    private final Map<String, Long> chromosomes = new TreeMap<>();
+    private boolean bad;
+    private byte[] chromosome = new byte[64];
+    private int chromosomeLength;
+    private String currentName;
+    private byte[] currentNameBytes = new byte[0];
+    private long currentTotal;
+    private int field;
+    private int lastNonEmptyField;
+    private boolean lineEmpty = true;
+    private boolean previousWasCarriageReturn;
+    // The start and end positions are parsed as they are read, like Long.parseLong would
+    private final int[] digits = new int[2];
+    private final boolean[] invalid = new boolean[2];
+    private final boolean[] negative = new boolean[2];
+    private final boolean[] started = new boolean[2];
+    private final long[] values = new long[2];
+
+    private void accept(byte b) {
+      if (b == '\n' && previousWasCarriageReturn) {
+        // This is the second half of a \r\n line ending
+        previousWasCarriageReturn = false;
+        return;
+      }
+      previousWasCarriageReturn = b == '\r';
+      if (b == '\n' || b == '\r') {
+        endLine();
+        return;
+      }
+      lineEmpty = false;
+      if (b == '\t') {
+        field++;
+        return;
+      }
+      lastNonEmptyField = field;
+      if (field == 0) {
+        if (chromosomeLength == chromosome.length) {
+          chromosome = Arrays.copyOf(chromosome, chromosome.length * 2);
+        }
+        chromosome[chromosomeLength++] = b;
+      } else if (field < 3) {
+        final var index = field - 1;
+        if (invalid[index]) {
+          return;
+        }
+        if (!started[index] && (b == '-' || b == '+')) {
+          negative[index] = b == '-';
+        } else if (b >= '0' && b <= '9') {
+          try {
+            values[index] = Math.addExact(Math.multiplyExact(values[index], 10), b - '0');
+            digits[index]++;
+          } catch (ArithmeticException e) {
+            invalid[index] = true;
+          }
+        } else {
+          invalid[index] = true;
+        }
+        started[index] = true;
+      }
+    }
+
+    private void endLine() {
+      var length = 0L;
+      // Like String.split, trailing empty fields are ignored, so the line only has positions if
+      // there is something in the third column or later
+      if (lastNonEmptyField >= 2) {
+        if (invalid[0] || invalid[1] || digits[0] == 0 || digits[1] == 0) {
+          bad = true;
+        } else {
+          final var start = negative[0] ? -values[0] : values[0];
+          final var end = negative[1] ? -values[1] : values[1];
+          length = Math.abs(end - start);
+        }
+      }
+      if (currentName == null
+          || !Arrays.equals(
+              currentNameBytes, 0, currentNameBytes.length, chromosome, 0, chromosomeLength)) {
+        flush();
+        currentNameBytes = Arrays.copyOf(chromosome, chromosomeLength);
+        currentName = new String(currentNameBytes, StandardCharsets.US_ASCII);
+      }
+      currentTotal += length;
+      chromosomeLength = 0;
+      field = 0;
+      lastNonEmptyField = 0;
+      lineEmpty = true;
+      for (var i = 0; i < 2; i++) {
+        digits[i] = 0;
+        invalid[i] = false;
+        negative[i] = false;
+        started[i] = false;
+        values[i] = 0;
+      }
+    }
+
+    private BedSummary finish() {
+      // Like Files.lines, a final line without a line ending is still a line
+      if (!lineEmpty) {
+        endLine();
+      }
+      flush();
+      return new BedSummary(chromosomes, bad);
+    }
+
+    private void flush() {
+      if (currentName != null) {
+        chromosomes.merge(currentName, currentTotal, Long::sum);
+      }
+      currentTotal = 0;
+    }
+  }
+
+  /** The largest region of a file to map at once */
+  private static final long MAP_SIZE = 1L << 28;
+
+  /**
+   * Read a BED file
+   *
+   * @param file the path to the file
+   */
+  public static BedSummary read(Path file) throws IOException {
+    final var parser = new Parser();
+    try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final var size = channel.size();
+      for (var offset = 0L; offset < size; offset += MAP_SIZE) {
+        final var buffer =
+            channel.map(MapMode.READ_ONLY, offset, Math.min(MAP_SIZE, size - offset));
+        while (buffer.hasRemaining()) {
+          parser.accept(buffer.get());
+        }
+      }
+    }
+    return parser.finish();
+  }
+}
@@ -13,10 +13,11 @@ import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -26,11 +27,13 @@ public class IntervalFile extends JsonPluginFile<Configuration> {
   private static final Pattern FILE_NAME =
       Pattern.compile("(?<panel>[^.]+)\\.(?<library>[A-Z]+(?:,[A-Z]+)*)\\.(?<genome>[^.]+)\\.bed");
   private static final ObjectMapper MAPPER = new ObjectMapper();
-  private static final Pattern TAB = Pattern.compile("\\t");
   private static final Gauge badBed =
       Gauge.build("shesmu_intervals_bad_bed", "Some records are corrupted in a BED file")
           .labelNames("filename", "bedfile")
           .register();
+  private record CachedBed(FileTime lastModified, long size, BedSummary summary) {}
+
+  private final Map<Path, CachedBed> cache = new ConcurrentHashMap<>();
   private Map<IntervalKey, Tuple> files = Map.of();
 
   public IntervalFile(Path fileName, String instanceName) {
@@ -56,25 +59,19 @@ public class IntervalFile extends JsonPluginFile<Configuration> {
   }
 
   private Map<String, Long> readChromosomes(Path file) {
-    badBed.labels(fileName().toString(), file.toString()).set(0);
-    try (final var bedContents = Files.lines(file, StandardCharsets.US_ASCII)) {
-      return bedContents
-          .map(
-              l -> {
-                final var fields = TAB.split(l);
-                var length = 0L;
-                if (fields.length >= 3) {
-                  try {
-                    length = Math.abs(Long.parseLong(fields[2]) - Long.parseLong(fields[1]));
-                  } catch (NumberFormatException e) {
-                    badBed.labels(fileName().toString(), file.toString()).set(1);
-                  }
-                }
-                return new Pair<>(fields[0], length);
-              })
-          .collect(
-              Collectors.groupingBy(
-                  Pair::first, TreeMap::new, Collectors.summingLong(Pair::second)));
+    try {
+      final var lastModified = Files.getLastModifiedTime(file);
+      final var size = Files.size(file);
+      final var cached = cache.get(file);
+      final BedSummary summary;
+      if (cached != null && cached.lastModified().equals(lastModified) && cached.size() == size) {
+        summary = cached.summary();
+      } else {
+        summary = BedSummary.read(file);
+        cache.put(file, new CachedBed(lastModified, size, summary));
+      }
+      badBed.labels(fileName().toString(), file.toString()).set(summary.bad() ? 1 : 0);
+      return summary.chromosomes();
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
@@ -97,8 +94,14 @@ public class IntervalFile extends JsonPluginFile<Configuration> {
   protected Optional<Integer> update(Configuration value) {
     final var root = fileName().resolveSibling(value.getDirectory());
     try (final var files = Files.walk(root, 1)) {
-      this.files =
+      // Collect the files first, since a directory walk does not split well for parallel streams
+      final var bedFiles =
           files
+              .filter(file -> FILE_NAME.matcher(file.getFileName().toString()).matches())
+              .toList();
+      cache.keySet().retainAll(bedFiles);
+      this.files =
+          bedFiles.parallelStream()
               .flatMap(
                   file -> {
                     final var match = FILE_NAME.matcher(file.getFileName().toString());
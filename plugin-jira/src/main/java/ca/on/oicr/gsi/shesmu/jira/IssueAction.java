@@ -127,18 +127,7 @@ public final class IssueAction extends Action {
     final var current = connection.get();
     requests.labels(current.url(), current.projectKey()).inc();
     try {
-      final var issues =
-          current.search(
-              String.format(
-                  "summary ~ %s and project = %s and issuetype = %s",
-                  JiraConnection.MAPPER.writeValueAsString(summary),
-                  current.projectKey(),
-                  JiraConnection.MAPPER.writeValueAsString(type)),
-              Set.of(
-                  Issue.LABELS.name(),
-                  Issue.STATUS.name(),
-                  Issue.TYPE.name(),
-                  Issue.UPDATED.name()));
+      final var issues = current.findIssues(summary, type);
       this.issues = issues.stream().map(Issue::getKey).collect(Collectors.toSet());
       final var missingLabels = new TreeSet<String>();
       final var result =
@@ -23,6 +23,7 @@ import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat.ObjectImyhat;
 import ca.on.oicr.gsi.status.SectionRenderer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.prometheus.client.Gauge;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -33,20 +34,25 @@ import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodyHandlers;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Spliterators;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -64,6 +70,123 @@ public class JiraConnection extends JsonPluginFile<Configuration> {
     }
   }
 
+  /**
+   * All the issues of one type in the project, indexed by summary
+   *
+   * <p>Rather than searching JIRA for every issue action, the issues are fetched once and then
+   * refreshed by only fetching the issues updated since the last refresh. Since deleted or moved
+   * issues are never reported as updated, the index is periodically rebuilt from scratch.
+   *
+   * <p>Only one thread refreshes the index at a time and the search is done without holding the
+   * lock; other threads keep using the previous index until the new one is swapped in. They only
+   * have to wait if the index has never been built.
+   */
+  private final class IssueIndex {
+    private record Snapshot(
+        Map<String, Issue> issues, Map<String, Map<String, Issue>> bySummary) {}
+
+    private Snapshot current;
+    private Instant lastFull = Instant.EPOCH;
+    private Instant lastUpdate = Instant.EPOCH;
+    private boolean refreshing;
+    private boolean stale = true;
+    private final String type;
+
+    private IssueIndex(String type) {
+      this.type = type;
+    }
+
+    public List<Issue> find(String summary)
+        throws URISyntaxException, IOException, InterruptedException {
+      final var now = Instant.now();
+      final Snapshot previous;
+      final boolean full;
+      final Instant since;
+      synchronized (this) {
+        while (true) {
+          final var needsFull = Duration.between(lastFull, now).compareTo(INDEX_REBUILD) > 0;
+          final var needsUpdate =
+              needsFull || stale || Duration.between(lastUpdate, now).compareTo(INDEX_REFRESH) > 0;
+          if (!needsUpdate || refreshing && current != null) {
+            return lookup(current, summary);
+          }
+          if (!refreshing) {
+            refreshing = true;
+            stale = false;
+            previous = current;
+            full = needsFull || current == null;
+            since = lastUpdate;
+            break;
+          }
+          // The first build is in progress and there is nothing to serve until it finishes
+          wait();
+        }
+      }
+      Snapshot next = null;
+      try {
+        final Map<String, Issue> issues;
+        if (full) {
+          issues = new HashMap<>();
+          for (final var issue :
+              search(
+                  String.format(
+                      "project = %s and issuetype = %s",
+                      projectKey, MAPPER.writeValueAsString(type)),
+                  INDEX_FIELDS)) {
+            issues.put(issue.getKey(), issue);
+          }
+        } else {
+          // JIRA only stores update times to the minute and interprets absolute dates in the
+          // user's time zone, so use a relative time with some overlap; fetching an issue twice is
+          // harmless
+          issues = new HashMap<>(previous.issues());
+          for (final var issue :
+              search(
+                  String.format(
+                      "project = %s and issuetype = %s and updated >= -%dm",
+                      projectKey,
+                      MAPPER.writeValueAsString(type),
+                      Duration.between(since, now).toMinutes() + 2),
+                  INDEX_FIELDS)) {
+            issues.put(issue.getKey(), issue);
+          }
+        }
+        final Map<String, Map<String, Issue>> bySummary = new HashMap<>();
+        for (final var issue : issues.values()) {
+          bySummary
+              .computeIfAbsent(normalizeSummary(issue), k -> new HashMap<>())
+              .put(issue.getKey(), issue);
+        }
+        next = new Snapshot(issues, bySummary);
+        indexSize.labels(url, projectKey, type).set(issues.size());
+      } finally {
+        synchronized (this) {
+          refreshing = false;
+          if (next == null) {
+            // The refresh failed, so the next caller should try again
+            stale = true;
+          } else {
+            current = next;
+            if (full) {
+              lastFull = now;
+            }
+            lastUpdate = now;
+          }
+          notifyAll();
+        }
+      }
+      return lookup(next, summary);
+    }
+
+    private List<Issue> lookup(Snapshot snapshot, String summary) {
+      return List.copyOf(snapshot.bySummary().getOrDefault(normalize(summary), Map.of()).values());
+    }
+
+    public synchronized void markStale() {
+      stale = true;
+    }
+  }
+
   static class JiraActionFilter {
     private final String assignee;
     private final ActionFilter filter;
@@ -90,6 +213,12 @@ public class JiraConnection extends JsonPluginFile<Configuration> {
   }
 
   static final HttpClient CLIENT = HttpClient.newHttpClient();
+  private static final Set<String> INDEX_FIELDS =
+      Stream.of(Issue.LABELS, Issue.STATUS, Issue.SUMMARY, Issue.TYPE, Issue.UPDATED)
+          .map(Field::name)
+          .collect(Collectors.toSet());
+  private static final Duration INDEX_REBUILD = Duration.ofHours(1);
+  private static final Duration INDEX_REFRESH = Duration.ofMinutes(5);
   private static final Set<String> FIELDS =
       Stream.of(
               Issue.ASSIGNEE,
@@ -110,6 +239,24 @@ public class JiraConnection extends JsonPluginFile<Configuration> {
               new Pair<>("summary", Imyhat.STRING),
               new Pair<>("updated", Imyhat.DATE.asOptional())));
   static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Gauge indexSize =
+      Gauge.build("shesmu_jira_index_size", "The number of issues held in the JIRA issue index.")
+          .labelNames("url", "project", "type")
+          .register();
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  /**
+   * Convert a summary into the form used to match issues
+   *
+   * <p>This ignores differences in case and whitespace, which JIRA's text search also ignores.
+   */
+  private static String normalize(String summary) {
+    return WHITESPACE.matcher(summary.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+  }
+
+  private static String normalizeSummary(Issue issue) {
+    return normalize(issue.extract(Issue.SUMMARY).orElse(""));
+  }
 
   /**
    * JIRA uses an Atlassian Document specification that is needlessly complicated for Shemu's needs,
@@ -149,6 +296,7 @@ public class JiraConnection extends JsonPluginFile<Configuration> {
   private final Supplier<JiraConnection> definer;
   private String issueTypeId;
   private String issueTypeName;
+  private final Map<String, IssueIndex> indices = new ConcurrentHashMap<>();
   private final IssueCache issues;
   private String projectId;
   private String projectKey = "FAKE";
@@ -260,8 +408,22 @@ public class JiraConnection extends JsonPluginFile<Configuration> {
                     "Create a new “%s” issue in JIRA project “%s”.", issueTypeName, projectKey)));
   }
 
+  /**
+   * Find all issues in the project with a matching summary
+   *
+   * <p>This uses the issue index, so it does not normally require a search of JIRA.
+   *
+   * @param summary the summary to match, ignoring case and whitespace
+   * @param type the name of the issue type
+   */
+  List<Issue> findIssues(String summary, String type)
+      throws URISyntaxException, IOException, InterruptedException {
+    return indices.computeIfAbsent(type.toLowerCase(Locale.ROOT), IssueIndex::new).find(summary);
+  }
+
   public void invalidate() {
     issues.invalidateAll();
+    indices.values().forEach(IssueIndex::markStale);
   }
 
   @ShesmuAction(description = "Opens (or re-opens) or closes a JIRA issue. Defined in {file}.")
@@ -389,6 +551,8 @@ public class JiraConnection extends JsonPluginFile<Configuration> {
       Issue issue, BiFunction<Stream<String>, Predicate<String>, Boolean> matcher, String comment)
       throws URISyntaxException, IOException, InterruptedException {
     IssueAction.issueUpdates.labels(url, projectKey).inc();
+    // Whatever happens, the issue may have changed, so the index must be refreshed
+    indices.values().forEach(IssueIndex::markStale);
     final var builder =
         HttpRequest.newBuilder(
             new URI(
@@ -474,6 +638,7 @@ public class JiraConnection extends JsonPluginFile<Configuration> {
       searches = config.getSearches();
       defaultFieldValues = config.getDefaultFieldValues();
       issues.invalidateAll();
+      indices.clear();
       final var builder =
           HttpRequest.newBuilder(
               new URI(
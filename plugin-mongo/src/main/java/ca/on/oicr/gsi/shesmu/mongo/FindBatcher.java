@@ -0,0 +1,87 @@
+package ca.on.oicr.gsi.shesmu.mongo;
+
+import ca.on.oicr.gsi.shesmu.mongo.MongoFunction.MongoFindFunction;
+import ca.on.oicr.gsi.shesmu.plugin.RequestBatcher;
+import ca.on.oicr.gsi.shesmu.plugin.RequestBatcher.Request;
+import ca.on.oicr.gsi.shesmu.plugin.Tuple;
+import com.mongodb.client.MongoClient;
+import io.prometheus.client.Histogram;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Combines concurrent calls to a <code>find</code> function into a single query
+ *
+ * <p>Olives call functions one row at a time, so batches only form when calls are concurrent. See
+ * {@link RequestBatcher} for how calls are combined.
+ */
+final class FindBatcher {
+  private static final Histogram batchSize =
+      Histogram.build()
+          .buckets(1, 2, 5, 10, 20, 50, 100, 200, 500, 1000)
+          .name("shesmu_mongo_batch_size")
+          .help("The number of calls to a Mongo function performed in a single query.")
+          .labelNames("function")
+          .register();
+  private final RequestBatcher<Tuple, Object> batcher;
+  private final Supplier<MongoClient> client;
+  private final MongoFindFunction function;
+  private final String name;
+
+  FindBatcher(String name, MongoFindFunction function, Supplier<MongoClient> client) {
+    this.name = name;
+    this.function = function;
+    this.client = client;
+    batcher = new RequestBatcher<>(function.getBatchSize(), 1, this::process);
+  }
+
+  /**
+   * Call the function
+   *
+   * @param arguments the arguments to the function
+   * @return the result of the function
+   */
+  public Object apply(Tuple arguments) throws InterruptedException {
+    try {
+      return batcher.apply(arguments);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void process(List<Request<Tuple, Object>> batch) {
+    batchSize.labels(name).observe(batch.size());
+    final var connection = client.get();
+    List<Object> results = null;
+    if (batch.size() > 1) {
+      try {
+        results =
+            function
+                .applyBatch(connection, batch.stream().map(Request::input).toList())
+                .orElse(null);
+      } catch (RuntimeException e) {
+        // The combined query can fail where the separate ones wouldn't (e.g., if the results are
+        // too large to fit in a single document), so try them separately
+        e.printStackTrace();
+      }
+    }
+    for (var i = 0; i < batch.size(); i++) {
+      final var request = batch.get(i);
+      if (results == null) {
+        // Either there is nothing to combine or the query can't be combined, so do each call
+        // separately
+        try {
+          request.complete(function.apply(connection, request.input()));
+        } catch (RuntimeException e) {
+          request.fail(e);
+        }
+      } else {
+        request.complete(results.get(i));
+      }
+    }
+  }
+}
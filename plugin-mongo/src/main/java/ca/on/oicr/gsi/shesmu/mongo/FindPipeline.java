@@ -0,0 +1,93 @@
+package ca.on.oicr.gsi.shesmu.mongo;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+
+/**
+ * An aggregation pipeline that produces the same results as a <code>find</code> query
+ *
+ * <p>The options on a <code>find</code> query are applied in a fixed order regardless of the order
+ * they are set in, so this collects them and then produces the pipeline stages in that order.
+ */
+final class FindPipeline {
+  /**
+   * Check if a <code>find</code> projection means the same thing in a <code>$project</code> stage
+   *
+   * <p>The positional operator, <code>$elemMatch</code>, and <code>$meta</code> are only available
+   * in <code>find</code> and <code>$slice</code> takes different arguments in an aggregation.
+   *
+   * @param projection the projection document
+   */
+  public static boolean isPortableProjection(BsonDocument projection) {
+    for (final var entry : projection.entrySet()) {
+      if (entry.getKey().equals("$")
+          || entry.getKey().endsWith(".$")
+          || entry.getKey().equals("$elemMatch")
+          || entry.getKey().equals("$meta")
+          || entry.getKey().equals("$slice")) {
+        return false;
+      }
+      if (entry.getValue().isDocument() && !isPortableProjection(entry.getValue().asDocument())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private BsonDocument filter;
+  private Integer limit;
+  private BsonDocument projection;
+  private Integer skip;
+  private BsonDocument sort;
+
+  FindPipeline(BsonDocument filter) {
+    this.filter = filter;
+  }
+
+  /** Get the filter used to select documents */
+  public BsonDocument filter() {
+    return filter;
+  }
+
+  public void filter(BsonDocument filter) {
+    this.filter = filter;
+  }
+
+  public void limit(int limit) {
+    this.limit = limit;
+  }
+
+  public void projection(BsonDocument projection) {
+    this.projection = projection;
+  }
+
+  public void skip(int skip) {
+    this.skip = skip;
+  }
+
+  public void sort(BsonDocument sort) {
+    this.sort = sort;
+  }
+
+  /** Create the pipeline stages */
+  public List<BsonDocument> stages() {
+    final List<BsonDocument> stages = new ArrayList<>();
+    stages.add(new BsonDocument("$match", filter));
+    if (sort != null) {
+      stages.add(new BsonDocument("$sort", sort));
+    }
+    if (skip != null) {
+      stages.add(new BsonDocument("$skip", new BsonInt32(skip)));
+    }
+    // A limit of zero means no limit for find, but is not permitted in an aggregation
+    if (limit != null && limit != 0) {
+      stages.add(new BsonDocument("$limit", new BsonInt32(Math.abs(limit))));
+    }
+    if (projection != null) {
+      stages.add(new BsonDocument("$project", projection));
+    }
+    return stages;
+  }
+}
@@ -5,8 +5,12 @@ import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoIterable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.bson.Document;
 
@@ -49,10 +53,63 @@ public abstract class MongoFunction {
   }
 
   public static class MongoFindFunction extends MongoFunction {
+    private int batchSize;
     private String collection;
     private QueryBuilder criteria;
     private List<OperationBuilder> operations;
 
+    /**
+     * Perform several queries at once
+     *
+     * <p>This is done using a single aggregation that selects every document that matches any of
+     * the queries and then uses a facet for each query to select and transform the documents for
+     * that query.
+     *
+     * @param client the Mongo connection
+     * @param arguments the arguments for each query
+     * @return the results for each query, in the same order as the arguments, or empty if the
+     *     operations of this query cannot be performed in an aggregation
+     */
+    public Optional<List<Object>> applyBatch(MongoClient client, List<Tuple> arguments) {
+      final var filters = new BsonArray();
+      final var facets = new BsonDocument();
+      for (var i = 0; i < arguments.size(); i++) {
+        final var values = pack(arguments.get(i));
+        final var pipeline = new FindPipeline(criteria.build(values).asDocument());
+        for (final var operation : operations) {
+          if (!operation.pipeline(pipeline, values)) {
+            return Optional.empty();
+          }
+        }
+        filters.add(pipeline.filter());
+        facets.put("q" + i, new BsonArray(pipeline.stages()));
+      }
+      // The initial match lets Mongo use indices to find candidate documents; the stages in a
+      // facet can't use indices
+      final var result =
+          client
+              .getDatabase(getDatabase())
+              .getCollection(getCollection())
+              .aggregate(
+                  List.of(
+                      new BsonDocument("$match", new BsonDocument("$or", filters)),
+                      new BsonDocument("$facet", facets)))
+              .first();
+      final List<Object> output = new ArrayList<>();
+      for (var i = 0; i < arguments.size(); i++) {
+        output.add(
+            getSelector()
+                .process(
+                    result == null ? List.of() : result.getList("q" + i, Document.class),
+                    getResultType()));
+      }
+      return Optional.of(output);
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
     public String getCollection() {
       return collection;
     }
@@ -78,6 +135,10 @@ public abstract class MongoFunction {
       return iterable;
     }
 
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
     public void setCollection(String collection) {
       this.collection = collection;
     }
@@ -93,17 +154,14 @@ public abstract class MongoFunction {
 
   private String database;
   private String description;
+  private int maxEntries;
   private List<ParameterConverter> parameters;
   private ReturnConverter resultType;
   private ResultSelector selector;
   private int ttl;
 
   public final Object apply(MongoClient client, Tuple arguments) {
-    final var values = new BsonValue[parameters.size()];
-    for (var i = 0; i < parameters.size(); i++) {
-      values[i] = parameters.get(i).pack(arguments.get(i));
-    }
-    return selector.process(run(client, values), resultType);
+    return selector.process(run(client, pack(arguments)), resultType);
   }
 
   public String getDatabase() {
@@ -114,6 +172,10 @@ public abstract class MongoFunction {
     return description;
   }
 
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
   public List<ParameterConverter> getParameters() {
     return parameters;
   }
@@ -130,6 +192,14 @@ public abstract class MongoFunction {
     return ttl;
   }
 
+  protected final BsonValue[] pack(Tuple arguments) {
+    final var values = new BsonValue[parameters.size()];
+    for (var i = 0; i < parameters.size(); i++) {
+      values[i] = parameters.get(i).pack(arguments.get(i));
+    }
+    return values;
+  }
+
   protected abstract MongoIterable<Document> run(MongoClient client, BsonValue... arguments);
 
   public void setDatabase(String database) {
@@ -140,6 +210,10 @@ public abstract class MongoFunction {
     this.description = description;
   }
 
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
   public void setParameters(List<ParameterConverter> parameters) {
     this.parameters = parameters;
   }
@@ -1,8 +1,10 @@
 package ca.on.oicr.gsi.shesmu.mongo;
 
+import ca.on.oicr.gsi.shesmu.mongo.MongoFunction.MongoFindFunction;
 import ca.on.oicr.gsi.shesmu.plugin.Definer;
 import ca.on.oicr.gsi.shesmu.plugin.Tuple;
 import ca.on.oicr.gsi.shesmu.plugin.cache.KeyValueCache;
+import ca.on.oicr.gsi.shesmu.plugin.cache.RefreshMode;
 import ca.on.oicr.gsi.shesmu.plugin.cache.SimpleRecord;
 import ca.on.oicr.gsi.shesmu.plugin.functions.FunctionParameter;
 import ca.on.oicr.gsi.shesmu.plugin.functions.VariadicFunction;
@@ -41,23 +43,36 @@ public class MongoServer extends JsonPluginFile<Configuration> {
     definer.clearFunctions();
     for (final var entry : configuration.getFunctions().entrySet()) {
       final var function = entry.getValue();
+      final var batcher =
+          function instanceof MongoFindFunction
+                  && ((MongoFindFunction) function).getBatchSize() > 1
+              ? new FindBatcher(
+                  String.format("%s %s", fileName(), entry.getKey()),
+                  (MongoFindFunction) function,
+                  () -> definer.get().connection.get())
+              : null;
+      final var cache =
+          new KeyValueCache<Tuple, Optional<Object>>(
+              String.format("mongo %s %s", fileName(), entry.getKey()),
+              function.getTtl(),
+              SimpleRecord::new) {
+            @Override
+            protected Optional<Object> fetch(Tuple key, Instant lastUpdated)
+                throws InterruptedException {
+              return Optional.of(
+                  batcher == null
+                      ? function.apply(definer.get().connection.get(), key)
+                      : batcher.apply(key));
+            }
+          };
+      cache.maxEntries(function.getMaxEntries());
+      // A query for an expired entry would otherwise block the olive that asked for it
+      cache.refreshMode(RefreshMode.STALE_WHILE_REVALIDATE);
       definer.defineFunction(
           entry.getKey(),
           function.getDescription(),
           function.getSelector().type(function.getResultType().type()),
           new VariadicFunction() {
-            private final Definer<MongoServer> definer = MongoServer.this.definer;
-            private final KeyValueCache<Tuple, Optional<Object>> cache =
-                new KeyValueCache<>(
-                    String.format("mongo %s %s", MongoServer.this.fileName(), entry.getKey()),
-                    function.getTtl(),
-                    SimpleRecord::new) {
-                  @Override
-                  protected Optional<Object> fetch(Tuple key, Instant lastUpdated) {
-                    return Optional.of(function.apply(definer.get().connection.get(), key));
-                  }
-                };
-
             @Override
             public Object apply(Object... arguments) {
               return cache
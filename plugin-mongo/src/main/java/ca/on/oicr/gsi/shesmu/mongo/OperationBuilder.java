@@ -25,6 +25,12 @@ public abstract class OperationBuilder {
       return input.filter(filter.buildRoot(arguments));
     }
 
+    @Override
+    public boolean pipeline(FindPipeline pipeline, BsonValue... arguments) {
+      pipeline.filter(filter.build(arguments).asDocument());
+      return true;
+    }
+
     public QueryBuilder getFilter() {
       return filter;
     }
@@ -42,6 +48,12 @@ public abstract class OperationBuilder {
       return input.limit(limit);
     }
 
+    @Override
+    public boolean pipeline(FindPipeline pipeline, BsonValue... arguments) {
+      pipeline.limit(limit);
+      return true;
+    }
+
     public int getLimit() {
       return limit;
     }
@@ -59,6 +71,12 @@ public abstract class OperationBuilder {
       return input.max(comparator.buildRoot(arguments));
     }
 
+    @Override
+    public boolean pipeline(FindPipeline pipeline, BsonValue... arguments) {
+      // Index bounds have no equivalent in an aggregation pipeline
+      return false;
+    }
+
     public QueryBuilder getComparator() {
       return comparator;
     }
@@ -76,6 +94,12 @@ public abstract class OperationBuilder {
       return input.min(comparator.buildRoot(arguments));
     }
 
+    @Override
+    public boolean pipeline(FindPipeline pipeline, BsonValue... arguments) {
+      // Index bounds have no equivalent in an aggregation pipeline
+      return false;
+    }
+
     public QueryBuilder getComparator() {
       return comparator;
     }
@@ -93,6 +117,16 @@ public abstract class OperationBuilder {
       return input.projection(projection.buildRoot(arguments));
     }
 
+    @Override
+    public boolean pipeline(FindPipeline pipeline, BsonValue... arguments) {
+      final var document = projection.build(arguments).asDocument();
+      if (!FindPipeline.isPortableProjection(document)) {
+        return false;
+      }
+      pipeline.projection(document);
+      return true;
+    }
+
     public QueryBuilder getProjection() {
       return projection;
     }
@@ -110,6 +144,12 @@ public abstract class OperationBuilder {
       return input.skip(skip);
     }
 
+    @Override
+    public boolean pipeline(FindPipeline pipeline, BsonValue... arguments) {
+      pipeline.skip(skip);
+      return true;
+    }
+
     public int getSkip() {
       return skip;
     }
@@ -127,6 +167,12 @@ public abstract class OperationBuilder {
       return input.sort(comparator.buildRoot(arguments));
     }
 
+    @Override
+    public boolean pipeline(FindPipeline pipeline, BsonValue... arguments) {
+      pipeline.sort(comparator.build(arguments).asDocument());
+      return true;
+    }
+
     public QueryBuilder getComparator() {
       return comparator;
     }
@@ -138,4 +184,11 @@ public abstract class OperationBuilder {
 
   public abstract FindIterable<Document> apply(
       FindIterable<Document> input, BsonValue... arguments);
+
+  /**
+   * Add this operation to an aggregation pipeline equivalent to the find query
+   *
+   * @return false if this operation cannot be expressed in an aggregation pipeline
+   */
+  public abstract boolean pipeline(FindPipeline pipeline, BsonValue... arguments);
 }
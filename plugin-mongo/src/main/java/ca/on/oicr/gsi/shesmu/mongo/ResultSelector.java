@@ -2,6 +2,7 @@ package ca.on.oicr.gsi.shesmu.mongo;
 
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
 import com.mongodb.client.MongoIterable;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 import org.bson.Document;
@@ -17,6 +18,11 @@ public enum ResultSelector {
     public Object process(MongoIterable<Document> iterable, ReturnConverter converter) {
       return Optional.ofNullable(iterable.first()).map(converter::unpackRoot);
     }
+
+    @Override
+    public Object process(List<Document> documents, ReturnConverter converter) {
+      return documents.stream().findFirst().map(converter::unpackRoot);
+    }
   },
   ALL {
     @Override
@@ -30,9 +36,18 @@ public enum ResultSelector {
       iterable.map(converter::unpackRoot).forEach((Consumer<Object>) set::add);
       return set;
     }
+
+    @Override
+    public Object process(List<Document> documents, ReturnConverter converter) {
+      final var set = converter.type().newSet();
+      documents.stream().map(converter::unpackRoot).forEach(set::add);
+      return set;
+    }
   };
 
   public abstract Imyhat type(Imyhat inner);
 
   public abstract Object process(MongoIterable<Document> iterable, ReturnConverter converter);
+
+  public abstract Object process(List<Document> documents, ReturnConverter converter);
 }
@@ -8,6 +8,15 @@ import java.util.Set;
 
 /** IUS information from Pinery */
 public final class PineryIUSForAnalysisValue extends PineryIUSValue {
+  /**
+   * Create a value for analysis from a value that includes skipped samples
+   *
+   * @param value the value to copy
+   */
+  public PineryIUSForAnalysisValue(PineryIUSIncludeSkippedValue value) {
+    super(value);
+  }
+
   public PineryIUSForAnalysisValue(
       Optional<String> barcode_kit,
       String bases_mask,
@@ -162,6 +162,65 @@ public abstract class PineryIUSValue {
     this.umis = umis;
   }
 
+  /**
+   * Create a copy of another value
+   *
+   * <p>This allows the same Pinery record to be presented in multiple input formats while sharing
+   * the field values.
+   */
+  protected PineryIUSValue(PineryIUSValue other) {
+    super();
+    this.barcode_kit = other.barcode_kit;
+    this.bases_mask = other.bases_mask;
+    this.batches = other.batches;
+    this.cell_viability = other.cell_viability;
+    this.completed_date = other.completed_date;
+    this.container_model = other.container_model;
+    this.donor = other.donor;
+    this.dv200 = other.dv200;
+    this.external_donor_id = other.external_donor_id;
+    this.external_key = other.external_key;
+    this.external_tissue_id = other.external_tissue_id;
+    this.flowcellGeometry = other.flowcellGeometry;
+    this.group_desc = other.group_desc;
+    this.group_id = other.group_id;
+    this.instrumentModel = other.instrumentModel;
+    this.is_sample = other.is_sample;
+    this.ius = other.ius;
+    this.kit = other.kit;
+    this.library_design = other.library_design;
+    this.library_name = other.library_name;
+    this.library_size = other.library_size;
+    this.library_type = other.library_type;
+    this.lims = other.lims;
+    this.organism = other.organism;
+    this.path = other.path;
+    this.project = other.project;
+    this.reference_slide_id = other.reference_slide_id;
+    this.rin = other.rin;
+    this.run_id = other.run_id;
+    this.run_lane_count = other.run_lane_count;
+    this.run_status = other.run_status;
+    this.sequencing_control_type = other.sequencing_control_type;
+    this.sequencing_kit = other.sequencing_kit;
+    this.sequencing_workflow = other.sequencing_workflow;
+    this.sex = other.sex;
+    this.spike_in = other.spike_in;
+    this.spike_in_dilution_factor = other.spike_in_dilution_factor;
+    this.spike_in_volume_ul = other.spike_in_volume_ul;
+    this.startDate = other.startDate;
+    this.subproject = other.subproject;
+    this.target_cell_recovery = other.target_cell_recovery;
+    this.targeted_resequencing = other.targeted_resequencing;
+    this.timestamp = other.timestamp;
+    this.tissue_name = other.tissue_name;
+    this.tissue_origin = other.tissue_origin;
+    this.tissue_prep = other.tissue_prep;
+    this.tissue_region = other.tissue_region;
+    this.tissue_type = other.tissue_type;
+    this.umis = other.umis;
+  }
+
   @ShesmuVariable(signable = true)
   public Optional<String> barcode_kit() {
     return barcode_kit;
@@ -7,13 +7,12 @@ import ca.on.oicr.gsi.shesmu.plugin.AlgebraicValue;
 import ca.on.oicr.gsi.shesmu.plugin.ErrorableStream;
 import ca.on.oicr.gsi.shesmu.plugin.Tuple;
 import ca.on.oicr.gsi.shesmu.plugin.cache.MergingRecord;
-import ca.on.oicr.gsi.shesmu.plugin.cache.ReplacingRecord;
+import ca.on.oicr.gsi.shesmu.plugin.cache.RefreshMode;
 import ca.on.oicr.gsi.shesmu.plugin.cache.SimpleRecord;
 import ca.on.oicr.gsi.shesmu.plugin.cache.ValueCache;
 import ca.on.oicr.gsi.shesmu.plugin.functions.ShesmuMethod;
 import ca.on.oicr.gsi.shesmu.plugin.functions.ShesmuParameter;
 import ca.on.oicr.gsi.shesmu.plugin.input.ShesmuInputSource;
-import ca.on.oicr.gsi.shesmu.plugin.json.JsonListBodyHandler;
 import ca.on.oicr.gsi.shesmu.plugin.json.JsonPluginFile;
 import ca.on.oicr.gsi.shesmu.runscanner.RunScannerPluginType;
 import ca.on.oicr.gsi.status.SectionRenderer;
@@ -26,10 +25,13 @@ import ca.on.oicr.ws.dto.SampleProvenanceDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.prometheus.client.Gauge;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
@@ -43,307 +45,39 @@ import java.util.stream.Stream;
 public class PinerySource extends JsonPluginFile<PineryConfiguration> {
 
   /**
-   * This input format filters out skipped samples and lanes, and provides only items that would be
-   * desirable to analyze.
+   * The IUS information from Pinery
+   *
+   * @param analysis the items that would be desirable to analyze; skipped samples and lanes are
+   *     filtered out
+   * @param includeSkipped all items, including skipped samples and lanes
    */
-  private final class AnalysisItemCache extends ValueCache<Stream<PineryIUSForAnalysisValue>> {
-    private AnalysisItemCache(Path fileName) {
-      super("pinery " + fileName.toString(), 30, ReplacingRecord::new);
-    }
+  private record Items(
+      List<PineryIUSForAnalysisValue> analysis,
+      List<PineryIUSIncludeSkippedValue> includeSkipped) {}
 
-    @Override
-    protected Stream<PineryIUSForAnalysisValue> fetch(Instant lastUpdated) throws Exception {
-      if (config.isEmpty()) {
-        return new ErrorableStream<>(Stream.empty(), false);
-      }
-      final PineryConfiguration cfg = config.get();
-      final Map<String, Integer> badSetCounts = new TreeMap<>();
-      final Map<String, RunDto> allRuns =
-          HTTP_CLIENT
-              .send(
-                  HttpRequest.newBuilder(URI.create(cfg.getUrl() + "/sequencerruns")).GET().build(),
-                  new JsonListBodyHandler<>(MAPPER, RunDto.class))
-              .body()
-              .get()
-              .collect(
-                  Collectors.toMap(
-                      RunDto::getName,
-                      Function.identity(),
-                      // If duplicate run names occur, pick one at random, because the universe is
-                      // spiteful, so we spite it back.
-                      (a, b) -> a));
-      final Set<Pair<String, String>> validLanes = new HashSet<>();
-      return Stream.concat(
-              lanes(
-                  cfg.getUrl(),
-                  cfg.getVersion(),
-                  cfg.getProvider(),
-                  badSetCounts,
-                  allRuns,
-                  (run, lane) -> validLanes.add(new Pair<>(run, lane))),
-              samples(
-                  cfg.getUrl(),
-                  cfg.getVersion(),
-                  cfg.getProvider(),
-                  badSetCounts,
-                  allRuns,
-                  (run, lane) -> validLanes.contains(new Pair<>(run, lane))))
-          .onClose(
-              () ->
-                  badSetCounts.forEach(
-                      (key, value) ->
-                          badSetMap
-                              .labels(
-                                  Stream.concat(
-                                          Stream.of(fileName().toString()),
-                                          Stream.of(key.split(":")))
-                                      .toArray(String[]::new))
-                              .set(value)));
-    }
-
-    private Stream<PineryIUSForAnalysisValue> lanes(
-        String baseUrl,
-        int version,
-        String provider,
-        Map<String, Integer> badSetCounts,
-        Map<String, RunDto> allRuns,
-        BiConsumer<String, String> addLane)
-        throws IOException, InterruptedException {
-      return HTTP_CLIENT
-          .send(
-              HttpRequest.newBuilder(
-                      URI.create(baseUrl + "/provenance/v" + version + "/lane-provenance"))
-                  .GET()
-                  .build(),
-              new JsonListBodyHandler<>(MAPPER, LaneProvenanceDto.class))
-          .body()
-          .get()
-          .filter(
-              lp ->
-                  isRunValid(allRuns.get(lp.getSequencerRunName()))
-                      && (lp.getSkip() == null || !lp.getSkip()))
-          .map(
-              lp -> {
-                final RunDto run = allRuns.get(lp.getSequencerRunName());
-                if (run == null) {
-                  badSetCounts.merge("run:null", 1, Integer::sum);
-                  return null;
-                }
-                final Instant lastModified =
-                    lp.getLastModified() == null ? Instant.EPOCH : lp.getLastModified().toInstant();
-                addLane.accept(lp.getSequencerRunName(), lp.getLaneNumber());
-
-                return new PineryIUSForAnalysisValue(
-                    Optional.empty(),
-                    run.getRunBasesMask() == null ? "" : run.getRunBasesMask(),
-                    Set.of(),
-                    Optional.empty(),
-                    Optional.ofNullable(lp.getCreatedDate()).map(ZonedDateTime::toInstant),
-                    maybeGetRunField(run, RunDto::getContainerModel),
-                    "",
-                    Optional.empty(),
-                    "",
-                    new Tuple(
-                        lp.getProvenanceId(),
-                        config.get().shortProvider(),
-                        false,
-                        Map.of("pinery-hash-" + version, lp.getVersion())),
-                    "",
-                    flowcellGeometry(run),
-                    "",
-                    "",
-                    lp.getSequencerRunPlatformModel(),
-                    new Tuple(
-                        lp.getSequencerRunName(),
-                        IUSUtils.parseLaneNumber(lp.getLaneNumber()),
-                        "NoIndex"),
-                    "",
-                    "",
-                    "",
-                    0L,
-                    "",
-                    new Tuple(lp.getLaneProvenanceId(), provider, lastModified, lp.getVersion()),
-                    "",
-                    Paths.get(
-                        run.getRunDirectory() == null || run.getRunDirectory().equals("")
-                            ? "/"
-                            : run.getRunDirectory()),
-                    "",
-                    Optional.empty(),
-                    Optional.empty(),
-                    run.getId(),
-                    runLaneCount(run),
-                    getRunField(run, RunDto::getState),
-                    "",
-                    maybeGetRunField(run, RunDto::getSequencingKit),
-                    maybeGetRunField(run, RunDto::getWorkflowType).orElse(""),
-                    Optional.empty(),
-                    Optional.empty(),
-                    Optional.empty(),
-                    Optional.empty(),
-                    run.getStartDate() == null || run.getStartDate().isEmpty()
-                        ? Instant.EPOCH
-                        : ZonedDateTime.parse(run.getStartDate()).toInstant(),
-                    Optional.empty(),
-                    Optional.empty(),
-                    "",
-                    "",
-                    "",
-                    "",
-                    "",
-                    "",
-                    lastModified,
-                    false,
-                    false);
-              })
-          .filter(Objects::nonNull);
-    }
-
-    private Stream<PineryIUSForAnalysisValue> samples(
-        String baseUrl,
-        int version,
-        String provider,
-        Map<String, Integer> badSetCounts,
-        Map<String, RunDto> allRuns,
-        BiPredicate<String, String> hasLane)
-        throws IOException, InterruptedException {
-      return HTTP_CLIENT
-          .send(
-              HttpRequest.newBuilder(
-                      URI.create(baseUrl + "/provenance/v" + version + "/sample-provenance"))
-                  .GET()
-                  .build(),
-              new JsonListBodyHandler<>(MAPPER, SampleProvenanceDto.class))
-          .body()
-          .get()
-          .filter(
-              sp ->
-                  isRunValid(allRuns.get(sp.getSequencerRunName()))
-                      && hasLane.test(sp.getSequencerRunName(), sp.getLaneNumber())
-                      && !sp.getSkip())
-          .map(
-              sp -> {
-                final Set<String> badSetInRecord = new TreeSet<>();
-                final Instant lastModified =
-                    sp.getLastModified() == null ? Instant.EPOCH : sp.getLastModified().toInstant();
-                final RunDto run = allRuns.get(sp.getSequencerRunName());
-                if (run == null) return null;
-                final PineryIUSForAnalysisValue result =
-                    new PineryIUSForAnalysisValue(
-                        limsAttr(sp, "barcode_kit", badSetInRecord::add, false),
-                        run.getRunBasesMask() == null ? "" : run.getRunBasesMask(),
-                        limsAttr(sp, "batches", badSetInRecord::add, false)
-                            .<Set<String>>map(
-                                s ->
-                                    COMMA
-                                        .splitAsStream(s)
-                                        .collect(Collectors.toCollection(TreeSet::new)))
-                            .orElse(Set.of()),
-                        limsAttr(sp, "cell_viability", badSetInRecord::add, false)
-                            .map(Double::parseDouble),
-                        Optional.ofNullable(sp.getCreatedDate()).map(ZonedDateTime::toInstant),
-                        maybeGetRunField(run, RunDto::getContainerModel),
-                        sp.getRootSampleName(),
-                        limsAttr(sp, "dv200", badSetInRecord::add, false).map(Double::parseDouble),
-                        limsAttr(sp, "geo_external_name", badSetInRecord::add, false).orElse(""),
-                        new Tuple(
-                            sp.getProvenanceId(),
-                            config.get().shortProvider(),
-                            false,
-                            Map.of("pinery-hash-" + version, sp.getVersion())),
-                        limsAttr(sp, "geo_tube_id", badSetInRecord::add, false).orElse(""),
-                        flowcellGeometry(run),
-                        limsAttr(sp, "geo_group_id_description", badSetInRecord::add, false)
-                            .orElse(""),
-                        limsAttr(sp, "geo_group_id", badSetInRecord::add, false).orElse(""),
-                        sp.getSequencerRunPlatformModel(),
-                        new Tuple(
-                            sp.getSequencerRunName(),
-                            IUSUtils.parseLaneNumber(sp.getLaneNumber()),
-                            sp.getIusTag()),
-                        limsAttr(sp, "geo_prep_kit", badSetInRecord::add, false).orElse(""),
-                        limsAttr(sp, "geo_library_source_template_type", badSetInRecord::add, true)
-                            .orElse(""),
-                        sp.getSampleName(),
-                        limsAttr(sp, "geo_library_size_code", badSetInRecord::add, false)
-                            .map(IUSUtils::parseLong)
-                            .orElse(0L),
-                        limsAttr(sp, "geo_library_type", badSetInRecord::add, false).orElse(""),
-                        new Tuple(
-                            sp.getSampleProvenanceId(), provider, lastModified, sp.getVersion()),
-                        limsAttr(sp, "geo_organism", badSetInRecord::add, true).orElse(""),
-                        Paths.get(
-                            run.getRunDirectory() == null || run.getRunDirectory().equals("")
-                                ? "/"
-                                : run.getRunDirectory()),
-                        sp.getStudyTitle(),
-                        limsAttr(sp, "reference_slide_id", badSetInRecord::add, false),
-                        limsAttr(sp, "rin", badSetInRecord::add, false).map(Double::parseDouble),
-                        run.getId(),
-                        runLaneCount(run),
-                        getRunField(run, RunDto::getState),
-                        limsAttr(sp, "sequencing_control_type", badSetInRecord::add, false)
-                            .orElse(""),
-                        maybeGetRunField(run, RunDto::getSequencingKit),
-                        maybeGetRunField(run, RunDto::getWorkflowType).orElse(""),
-                        limsAttr(sp, "sex", badSetInRecord::add, false),
-                        limsAttr(sp, "spike_in", badSetInRecord::add, false),
-                        limsAttr(sp, "spike_in_dilution_factor", badSetInRecord::add, false),
-                        limsAttr(sp, "spike_in_volume_ul", badSetInRecord::add, false)
-                            .map(Double::parseDouble),
-                        run.getStartDate() == null || run.getStartDate().isEmpty()
-                            ? Instant.EPOCH
-                            : ZonedDateTime.parse(run.getStartDate()).toInstant(),
-                        limsAttr(sp, "subproject", badSetInRecord::add, false)
-                            .filter(p -> !p.isBlank()),
-                        limsAttr(sp, "target_cell_recovery", badSetInRecord::add, false)
-                            .map(Double::parseDouble),
-                        IUSUtils.tissue(sp.getParentSampleName()),
-                        limsAttr(sp, "geo_tissue_type", badSetInRecord::add, true).orElse(""),
-                        limsAttr(sp, "geo_tissue_origin", badSetInRecord::add, true).orElse(""),
-                        limsAttr(sp, "geo_tissue_preparation", badSetInRecord::add, false)
-                            .orElse(""),
-                        limsAttr(sp, "geo_targeted_resequencing", badSetInRecord::add, false)
-                            .orElse(""),
-                        limsAttr(sp, "geo_tissue_region", badSetInRecord::add, false).orElse(""),
-                        lastModified,
-                        limsAttr(sp, "umis", badSetInRecord::add, false)
-                            .map(Boolean::parseBoolean)
-                            .orElse(false),
-                        true);
-
-                if (badSetInRecord.isEmpty()) {
-                  return result;
-                } else {
-                  badSetInRecord.forEach(name -> badSetCounts.merge(name, 1, Integer::sum));
-                  return null;
-                }
-              })
-          .filter(Objects::nonNull);
-    }
-  }
-
-  /** This input format includes skipped samples and lanes. */
-  private final class IncludeSkippedItemCache
-      extends ValueCache<Stream<PineryIUSIncludeSkippedValue>> {
-    private IncludeSkippedItemCache(Path fileName) {
-      super("pinery-include-skipped " + fileName.toString(), 30, ReplacingRecord::new);
+  /**
+   * Both IUS input formats are built from the same data from Pinery, so the data is fetched once
+   * and both are built in a single pass.
+   */
+  private final class ItemCache extends ValueCache<Optional<Items>> {
+    private ItemCache(Path fileName) {
+      super("pinery " + fileName.toString(), 30, SimpleRecord::new);
+      // Downloading everything from Pinery takes minutes, so olives should keep running on the
+      // previous data while it happens
+      refreshMode(RefreshMode.STALE_WHILE_REVALIDATE);
     }
 
     @Override
-    protected Stream<PineryIUSIncludeSkippedValue> fetch(Instant lastUpdated) throws Exception {
+    protected Optional<Items> fetch(Instant lastUpdated) throws Exception {
       if (config.isEmpty()) {
-        return new ErrorableStream<>(Stream.empty(), false);
+        return Optional.empty();
       }
       final PineryConfiguration cfg = config.get();
+      final var version = cfg.getVersion();
+      final var provider = cfg.getProvider();
       final Map<String, Integer> badSetCounts = new TreeMap<>();
       final Map<String, RunDto> allRuns =
-          HTTP_CLIENT
-              .send(
-                  HttpRequest.newBuilder(URI.create(cfg.getUrl() + "/sequencerruns")).GET().build(),
-                  new JsonListBodyHandler<>(MAPPER, RunDto.class))
-              .body()
-              .get()
+          fetchList(cfg.getUrl(), "/sequencerruns", RunDto.class).stream()
               .collect(
                   Collectors.toMap(
                       RunDto::getName,
@@ -351,258 +85,208 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
                       // If duplicate run names occur, pick one at random, because the universe is
                       // spiteful, so we spite it back.
                       (a, b) -> a));
-      final Set<Pair<String, String>> validLanes = new HashSet<>();
-      return Stream.concat(
-              lanes(
-                  cfg.getUrl(),
-                  cfg.getVersion(),
-                  cfg.getProvider(),
-                  badSetCounts,
-                  allRuns,
-                  (run, lane) -> validLanes.add(new Pair<>(run, lane))),
-              samples(
-                  cfg.getUrl(),
-                  cfg.getVersion(),
-                  cfg.getProvider(),
-                  badSetCounts,
-                  allRuns,
-                  (run, lane) -> validLanes.contains(new Pair<>(run, lane))))
-          .onClose(
-              () ->
-                  badSetCounts.forEach(
-                      (key, value) ->
-                          badSetMap
-                              .labels(
-                                  Stream.concat(
-                                          Stream.of(fileName().toString()),
-                                          Stream.of(key.split(":")))
-                                      .toArray(String[]::new))
-                              .set(value)));
-    }
-
-    private Stream<PineryIUSIncludeSkippedValue> lanes(
-        String baseUrl,
-        int version,
-        String provider,
-        Map<String, Integer> badSetCounts,
-        Map<String, RunDto> allRuns,
-        BiConsumer<String, String> addLane)
-        throws IOException, InterruptedException {
-      return HTTP_CLIENT
-          .send(
-              HttpRequest.newBuilder(
-                      URI.create(baseUrl + "/provenance/v" + version + "/lane-provenance"))
-                  .GET()
-                  .build(),
-              new JsonListBodyHandler<>(MAPPER, LaneProvenanceDto.class))
-          .body()
-          .get()
-          .filter(lp -> isRunValid(allRuns.get(lp.getSequencerRunName())))
-          .map(
-              lp -> {
-                final RunDto run = allRuns.get(lp.getSequencerRunName());
-                if (run == null) {
-                  badSetCounts.merge("run:null", 1, Integer::sum);
-                  return null;
-                }
-                final Instant lastModified =
-                    lp.getLastModified() == null ? Instant.EPOCH : lp.getLastModified().toInstant();
-                addLane.accept(lp.getSequencerRunName(), lp.getLaneNumber());
-
-                return new PineryIUSIncludeSkippedValue(
-                    Optional.empty(),
-                    run.getRunBasesMask() == null ? "" : run.getRunBasesMask(),
-                    Set.of(),
-                    Optional.empty(),
-                    Optional.ofNullable(lp.getCreatedDate()).map(ZonedDateTime::toInstant),
-                    maybeGetRunField(run, RunDto::getContainerModel),
-                    "",
-                    Optional.empty(),
-                    "",
-                    new Tuple(
-                        lp.getProvenanceId(),
-                        config.get().shortProvider(),
-                        false,
-                        Map.of("pinery-hash-" + version, lp.getVersion())),
-                    "",
-                    flowcellGeometry(run),
-                    "",
-                    "",
-                    lp.getSequencerRunPlatformModel(),
-                    new Tuple(
-                        lp.getSequencerRunName(),
-                        IUSUtils.parseLaneNumber(lp.getLaneNumber()),
-                        "NoIndex"),
-                    "",
-                    "",
-                    "",
-                    0L,
-                    "",
-                    new Tuple(lp.getLaneProvenanceId(), provider, lastModified, lp.getVersion()),
-                    "",
-                    Paths.get(
-                        run.getRunDirectory() == null || run.getRunDirectory().equals("")
-                            ? "/"
-                            : run.getRunDirectory()),
-                    "",
-                    Optional.empty(),
-                    Optional.empty(),
-                    run.getId(),
-                    runLaneCount(run),
-                    getRunField(run, RunDto::getState),
-                    "",
-                    maybeGetRunField(run, RunDto::getSequencingKit),
-                    maybeGetRunField(run, RunDto::getWorkflowType).orElse(""),
-                    Optional.empty(),
-                    Optional.empty(),
-                    Optional.empty(),
-                    Optional.empty(),
-                    run.getStartDate() == null || run.getStartDate().isEmpty()
-                        ? Instant.EPOCH
-                        : ZonedDateTime.parse(run.getStartDate()).toInstant(),
-                    Optional.empty(),
-                    Optional.empty(),
-                    "",
-                    "",
-                    "",
-                    "",
-                    "",
-                    "",
-                    lastModified,
+      final List<PineryIUSForAnalysisValue> analysis = new ArrayList<>();
+      final List<PineryIUSIncludeSkippedValue> includeSkipped = new ArrayList<>();
+      // All lanes, mapped to whether the lane can be analyzed (i.e., is not skipped)
+      final Map<Pair<String, String>, Boolean> validLanes = new HashMap<>();
+      for (final var lp :
+          fetchList(
+              cfg.getUrl(),
+              "/provenance/v" + version + "/lane-provenance",
+              LaneProvenanceDto.class)) {
+        if (!isRunValid(allRuns.get(lp.getSequencerRunName()))) {
+          continue;
+        }
+        final RunDto run = allRuns.get(lp.getSequencerRunName());
+        final Instant lastModified =
+            lp.getLastModified() == null ? Instant.EPOCH : lp.getLastModified().toInstant();
+        final var analyze = lp.getSkip() == null || !lp.getSkip();
+        validLanes.put(new Pair<>(lp.getSequencerRunName(), lp.getLaneNumber()), analyze);
+        final var value =
+            new PineryIUSIncludeSkippedValue(
+                Optional.empty(),
+                run.getRunBasesMask() == null ? "" : run.getRunBasesMask(),
+                Set.of(),
+                Optional.empty(),
+                Optional.ofNullable(lp.getCreatedDate()).map(ZonedDateTime::toInstant),
+                maybeGetRunField(run, RunDto::getContainerModel),
+                "",
+                Optional.empty(),
+                "",
+                new Tuple(
+                    lp.getProvenanceId(),
+                    config.get().shortProvider(),
                     false,
+                    Map.of("pinery-hash-" + version, lp.getVersion())),
+                "",
+                flowcellGeometry(run),
+                "",
+                "",
+                lp.getSequencerRunPlatformModel(),
+                new Tuple(
+                    lp.getSequencerRunName(),
+                    IUSUtils.parseLaneNumber(lp.getLaneNumber()),
+                    "NoIndex"),
+                "",
+                "",
+                "",
+                0L,
+                "",
+                new Tuple(lp.getLaneProvenanceId(), provider, lastModified, lp.getVersion()),
+                "",
+                Paths.get(
+                    run.getRunDirectory() == null || run.getRunDirectory().equals("")
+                        ? "/"
+                        : run.getRunDirectory()),
+                "",
+                Optional.empty(),
+                Optional.empty(),
+                run.getId(),
+                runLaneCount(run),
+                getRunField(run, RunDto::getState),
+                "",
+                maybeGetRunField(run, RunDto::getSequencingKit),
+                maybeGetRunField(run, RunDto::getWorkflowType).orElse(""),
+                Optional.empty(),
+                Optional.empty(),
+                Optional.empty(),
+                Optional.empty(),
+                run.getStartDate() == null || run.getStartDate().isEmpty()
+                    ? Instant.EPOCH
+                    : ZonedDateTime.parse(run.getStartDate()).toInstant(),
+                Optional.empty(),
+                Optional.empty(),
+                "",
+                "",
+                "",
+                "",
+                "",
+                "",
+                lastModified,
+                false,
+                false,
+                lp.getSkip());
+        includeSkipped.add(value);
+        if (analyze) {
+          analysis.add(new PineryIUSForAnalysisValue(value));
+        }
+      }
+      for (final var sp :
+          fetchList(
+              cfg.getUrl(),
+              "/provenance/v" + version + "/sample-provenance",
+              SampleProvenanceDto.class)) {
+        final var lane = validLanes.get(new Pair<>(sp.getSequencerRunName(), sp.getLaneNumber()));
+        final RunDto run = allRuns.get(sp.getSequencerRunName());
+        if (!isRunValid(run) || lane == null) {
+          continue;
+        }
+        final var analyze = lane && (sp.getSkip() == null || !sp.getSkip());
+        final Set<String> badSetInRecord = new TreeSet<>();
+        final Instant lastModified =
+            sp.getLastModified() == null ? Instant.EPOCH : sp.getLastModified().toInstant();
+        final var value =
+            new PineryIUSIncludeSkippedValue(
+                limsAttr(sp, "barcode_kit", badSetInRecord::add, false),
+                run.getRunBasesMask() == null ? "" : run.getRunBasesMask(),
+                limsAttr(sp, "batches", badSetInRecord::add, false)
+                    .<Set<String>>map(
+                        s ->
+                            COMMA
+                                .splitAsStream(s)
+                                .collect(Collectors.toCollection(TreeSet::new)))
+                    .orElse(Set.of()),
+                limsAttr(sp, "cell_viability", badSetInRecord::add, false).map(Double::parseDouble),
+                Optional.ofNullable(sp.getCreatedDate()).map(ZonedDateTime::toInstant),
+                maybeGetRunField(run, RunDto::getContainerModel),
+                sp.getRootSampleName(),
+                limsAttr(sp, "dv200", badSetInRecord::add, false).map(Double::parseDouble),
+                limsAttr(sp, "geo_external_name", badSetInRecord::add, false).orElse(""),
+                new Tuple(
+                    sp.getProvenanceId(),
+                    config.get().shortProvider(),
                     false,
-                    lp.getSkip());
-              })
-          .filter(Objects::nonNull);
-    }
-
-    private Stream<PineryIUSIncludeSkippedValue> samples(
-        String baseUrl,
-        int version,
-        String provider,
-        Map<String, Integer> badSetCounts,
-        Map<String, RunDto> allRuns,
-        BiPredicate<String, String> hasLane)
-        throws IOException, InterruptedException {
-      return HTTP_CLIENT
-          .send(
-              HttpRequest.newBuilder(
-                      URI.create(baseUrl + "/provenance/v" + version + "/sample-provenance"))
-                  .GET()
-                  .build(),
-              new JsonListBodyHandler<>(MAPPER, SampleProvenanceDto.class))
-          .body()
-          .get()
-          .filter(
-              sp ->
-                  isRunValid(allRuns.get(sp.getSequencerRunName()))
-                      && hasLane.test(sp.getSequencerRunName(), sp.getLaneNumber()))
-          .map(
-              sp -> {
-                final Set<String> badSetInRecord = new TreeSet<>();
-                final Instant lastModified =
-                    sp.getLastModified() == null ? Instant.EPOCH : sp.getLastModified().toInstant();
-                final RunDto run = allRuns.get(sp.getSequencerRunName());
-                if (run == null) return null;
-                final PineryIUSIncludeSkippedValue result =
-                    new PineryIUSIncludeSkippedValue(
-                        limsAttr(sp, "barcode_kit", badSetInRecord::add, false),
-                        run.getRunBasesMask() == null ? "" : run.getRunBasesMask(),
-                        limsAttr(sp, "batches", badSetInRecord::add, false)
-                            .<Set<String>>map(
-                                s ->
-                                    COMMA
-                                        .splitAsStream(s)
-                                        .collect(Collectors.toCollection(TreeSet::new)))
-                            .orElse(Set.of()),
-                        limsAttr(sp, "cell_viability", badSetInRecord::add, false)
-                            .map(Double::parseDouble),
-                        Optional.ofNullable(sp.getCreatedDate()).map(ZonedDateTime::toInstant),
-                        maybeGetRunField(run, RunDto::getContainerModel),
-                        sp.getRootSampleName(),
-                        limsAttr(sp, "dv200", badSetInRecord::add, false).map(Double::parseDouble),
-                        limsAttr(sp, "geo_external_name", badSetInRecord::add, false).orElse(""),
-                        new Tuple(
-                            sp.getProvenanceId(),
-                            config.get().shortProvider(),
-                            false,
-                            Map.of("pinery-hash-" + version, sp.getVersion())),
-                        limsAttr(sp, "geo_tube_id", badSetInRecord::add, false).orElse(""),
-                        flowcellGeometry(run),
-                        limsAttr(sp, "geo_group_id_description", badSetInRecord::add, false)
-                            .orElse(""),
-                        limsAttr(sp, "geo_group_id", badSetInRecord::add, false).orElse(""),
-                        sp.getSequencerRunPlatformModel(),
-                        new Tuple(
-                            sp.getSequencerRunName(),
-                            IUSUtils.parseLaneNumber(sp.getLaneNumber()),
-                            sp.getIusTag()),
-                        limsAttr(sp, "geo_prep_kit", badSetInRecord::add, false).orElse(""),
-                        limsAttr(sp, "geo_library_source_template_type", badSetInRecord::add, true)
-                            .orElse(""),
-                        sp.getSampleName(),
-                        limsAttr(sp, "geo_library_size_code", badSetInRecord::add, false)
-                            .map(IUSUtils::parseLong)
-                            .orElse(0L),
-                        limsAttr(sp, "geo_library_type", badSetInRecord::add, false).orElse(""),
-                        new Tuple(
-                            sp.getSampleProvenanceId(), provider, lastModified, sp.getVersion()),
-                        limsAttr(sp, "geo_organism", badSetInRecord::add, true).orElse(""),
-                        Paths.get(
-                            run.getRunDirectory() == null || run.getRunDirectory().equals("")
-                                ? "/"
-                                : run.getRunDirectory()),
-                        sp.getStudyTitle(),
-                        limsAttr(sp, "reference_slide_id", badSetInRecord::add, false),
-                        limsAttr(sp, "rin", badSetInRecord::add, false).map(Double::parseDouble),
-                        run.getId(),
-                        runLaneCount(run),
-                        getRunField(run, RunDto::getState),
-                        limsAttr(sp, "sequencing_control_type", badSetInRecord::add, false)
-                            .orElse(""),
-                        maybeGetRunField(run, RunDto::getSequencingKit),
-                        maybeGetRunField(run, RunDto::getWorkflowType).orElse(""),
-                        limsAttr(sp, "sex", badSetInRecord::add, false),
-                        limsAttr(sp, "spike_in", badSetInRecord::add, false),
-                        limsAttr(sp, "spike_in_dilution_factor", badSetInRecord::add, false),
-                        limsAttr(sp, "spike_in_volume_ul", badSetInRecord::add, false)
-                            .map(Double::parseDouble),
-                        run.getStartDate() == null || run.getStartDate().isEmpty()
-                            ? Instant.EPOCH
-                            : ZonedDateTime.parse(run.getStartDate()).toInstant(),
-                        limsAttr(sp, "subproject", badSetInRecord::add, false)
-                            .filter(p -> !p.isBlank()),
-                        limsAttr(sp, "target_cell_recovery", badSetInRecord::add, false)
-                            .map(Double::parseDouble),
-                        IUSUtils.tissue(sp.getParentSampleName()),
-                        limsAttr(sp, "geo_tissue_type", badSetInRecord::add, true).orElse(""),
-                        limsAttr(sp, "geo_tissue_origin", badSetInRecord::add, true).orElse(""),
-                        limsAttr(sp, "geo_tissue_preparation", badSetInRecord::add, false)
-                            .orElse(""),
-                        limsAttr(sp, "geo_targeted_resequencing", badSetInRecord::add, false)
-                            .orElse(""),
-                        limsAttr(sp, "geo_tissue_region", badSetInRecord::add, false).orElse(""),
-                        lastModified,
-                        limsAttr(sp, "umis", badSetInRecord::add, false)
-                            .map(Boolean::parseBoolean)
-                            .orElse(false),
-                        true,
-                        sp.getSkip());
-
-                if (badSetInRecord.isEmpty()) {
-                  return result;
-                } else {
-                  badSetInRecord.forEach(name -> badSetCounts.merge(name, 1, Integer::sum));
-                  return null;
-                }
-              })
-          .filter(Objects::nonNull);
+                    Map.of("pinery-hash-" + version, sp.getVersion())),
+                limsAttr(sp, "geo_tube_id", badSetInRecord::add, false).orElse(""),
+                flowcellGeometry(run),
+                limsAttr(sp, "geo_group_id_description", badSetInRecord::add, false).orElse(""),
+                limsAttr(sp, "geo_group_id", badSetInRecord::add, false).orElse(""),
+                sp.getSequencerRunPlatformModel(),
+                new Tuple(
+                    sp.getSequencerRunName(),
+                    IUSUtils.parseLaneNumber(sp.getLaneNumber()),
+                    sp.getIusTag()),
+                limsAttr(sp, "geo_prep_kit", badSetInRecord::add, false).orElse(""),
+                limsAttr(sp, "geo_library_source_template_type", badSetInRecord::add, true)
+                    .orElse(""),
+                sp.getSampleName(),
+                limsAttr(sp, "geo_library_size_code", badSetInRecord::add, false)
+                    .map(IUSUtils::parseLong)
+                    .orElse(0L),
+                limsAttr(sp, "geo_library_type", badSetInRecord::add, false).orElse(""),
+                new Tuple(sp.getSampleProvenanceId(), provider, lastModified, sp.getVersion()),
+                limsAttr(sp, "geo_organism", badSetInRecord::add, true).orElse(""),
+                Paths.get(
+                    run.getRunDirectory() == null || run.getRunDirectory().equals("")
+                        ? "/"
+                        : run.getRunDirectory()),
+                sp.getStudyTitle(),
+                limsAttr(sp, "reference_slide_id", badSetInRecord::add, false),
+                limsAttr(sp, "rin", badSetInRecord::add, false).map(Double::parseDouble),
+                run.getId(),
+                runLaneCount(run),
+                getRunField(run, RunDto::getState),
+                limsAttr(sp, "sequencing_control_type", badSetInRecord::add, false).orElse(""),
+                maybeGetRunField(run, RunDto::getSequencingKit),
+                maybeGetRunField(run, RunDto::getWorkflowType).orElse(""),
+                limsAttr(sp, "sex", badSetInRecord::add, false),
+                limsAttr(sp, "spike_in", badSetInRecord::add, false),
+                limsAttr(sp, "spike_in_dilution_factor", badSetInRecord::add, false),
+                limsAttr(sp, "spike_in_volume_ul", badSetInRecord::add, false)
+                    .map(Double::parseDouble),
+                run.getStartDate() == null || run.getStartDate().isEmpty()
+                    ? Instant.EPOCH
+                    : ZonedDateTime.parse(run.getStartDate()).toInstant(),
+                limsAttr(sp, "subproject", badSetInRecord::add, false).filter(p -> !p.isBlank()),
+                limsAttr(sp, "target_cell_recovery", badSetInRecord::add, false)
+                    .map(Double::parseDouble),
+                IUSUtils.tissue(sp.getParentSampleName()),
+                limsAttr(sp, "geo_tissue_type", badSetInRecord::add, true).orElse(""),
+                limsAttr(sp, "geo_tissue_origin", badSetInRecord::add, true).orElse(""),
+                limsAttr(sp, "geo_tissue_preparation", badSetInRecord::add, false).orElse(""),
+                limsAttr(sp, "geo_targeted_resequencing", badSetInRecord::add, false).orElse(""),
+                limsAttr(sp, "geo_tissue_region", badSetInRecord::add, false).orElse(""),
+                lastModified,
+                limsAttr(sp, "umis", badSetInRecord::add, false)
+                    .map(Boolean::parseBoolean)
+                    .orElse(false),
+                true,
+                sp.getSkip());
+
+        if (badSetInRecord.isEmpty()) {
+          includeSkipped.add(value);
+          if (analyze) {
+            analysis.add(new PineryIUSForAnalysisValue(value));
+          }
+        } else if (analyze) {
+          badSetInRecord.forEach(name -> badSetCounts.merge(name, 1, Integer::sum));
+        }
+      }
+      badSetCounts.forEach(
+          (key, value) ->
+              badSetMap
+                  .labels(
+                      Stream.concat(Stream.of(fileName().toString()), Stream.of(key.split(":")))
+                          .toArray(String[]::new))
+                  .set(value));
+      return Optional.of(new Items(analysis, includeSkipped));
     }
   }
 
   private final class PlatformCache extends ValueCache<Optional<Map<String, String>>> {
     private PlatformCache(Path fileName) {
       super("pinery-platform " + fileName.toString(), 30, SimpleRecord::new);
+      refreshMode(RefreshMode.STALE_WHILE_REVALIDATE);
     }
 
     @Override
@@ -610,16 +294,8 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
       if (config.isEmpty()) {
         return Optional.empty();
       }
-      final PineryConfiguration cfg = config.get();
       return Optional.of(
-          HTTP_CLIENT
-              .send(
-                  HttpRequest.newBuilder(URI.create(config.get().getUrl() + "/instrumentmodels"))
-                      .GET()
-                      .build(),
-                  new JsonListBodyHandler<>(MAPPER, InstrumentModelDto.class))
-              .body()
-              .get()
+          fetchList(config.get().getUrl(), "/instrumentmodels", InstrumentModelDto.class).stream()
               .filter(i -> !i.getName().equals("unspecified"))
               .collect(
                   Collectors.toMap(InstrumentModelDto::getName, InstrumentModelDto::getPlatform)));
@@ -633,19 +309,53 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
           "pinery_projects " + fileName.toString(),
           60,
           MergingRecord.by(SampleProjectDto::getName));
+      refreshMode(RefreshMode.STALE_WHILE_REVALIDATE);
     }
 
     @Override
     protected Stream<SampleProjectDto> fetch(Instant lastUpdated) throws Exception {
       if (config.isEmpty()) return new ErrorableStream<>(Stream.empty(), false);
-      return HTTP_CLIENT
-          .send(
-              HttpRequest.newBuilder(URI.create(config.get().getUrl() + "/sample/projects"))
-                  .GET()
-                  .build(),
-              new JsonListBodyHandler<>(MAPPER, SampleProjectDto.class))
-          .body()
-          .get();
+      return fetchList(config.get().getUrl(), "/sample/projects", SampleProjectDto.class).stream();
+    }
+  }
+
+  /** Counts the bytes read from a stream and the time spent waiting for them */
+  private static final class MeasuredInputStream extends FilterInputStream {
+    private long bytes;
+    private long waitTime;
+
+    private MeasuredInputStream(InputStream in) {
+      super(in);
+    }
+
+    public long bytes() {
+      return bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final var start = System.nanoTime();
+      final var result = super.read();
+      waitTime += System.nanoTime() - start;
+      if (result != -1) {
+        bytes++;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      final var start = System.nanoTime();
+      final var result = super.read(b, off, len);
+      waitTime += System.nanoTime() - start;
+      if (result > 0) {
+        bytes += result;
+      }
+      return result;
+    }
+
+    public long waitTime() {
+      return waitTime;
     }
   }
 
@@ -659,6 +369,18 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
               "The number of provenance records with sets not containing exactly one item.")
           .labelNames("target", "property", "reason")
           .register();
+  private static final Gauge fetchBytes =
+      Gauge.build(
+              "shesmu_pinery_fetch_bytes",
+              "The number of bytes received from a Pinery endpoint during the last fetch.")
+          .labelNames("target", "endpoint")
+          .register();
+  private static final Gauge parseTime =
+      Gauge.build(
+              "shesmu_pinery_parse_time",
+              "The time, in seconds, spent parsing the last response from a Pinery endpoint.")
+          .labelNames("target", "endpoint")
+          .register();
 
   static {
     MAPPER.registerModule(new JavaTimeModule());
@@ -695,18 +417,16 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
         .orElse(0);
   }
 
-  private final AnalysisItemCache cache;
-  private final IncludeSkippedItemCache includeSkippedCache;
   private Set<String> clinicalPipelines;
   private Optional<PineryConfiguration> config = Optional.empty();
+  private final ItemCache items;
   private final PlatformCache platforms;
   private final ProjectCache projects;
 
   public PinerySource(Path fileName, String instanceName) {
     super(fileName, instanceName, MAPPER, PineryConfiguration.class);
     projects = new ProjectCache(fileName);
-    cache = new AnalysisItemCache(fileName);
-    includeSkippedCache = new IncludeSkippedItemCache(fileName);
+    items = new ItemCache(fileName);
     platforms = new PlatformCache(fileName);
   }
 
@@ -775,6 +495,39 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
     renderer.line("Provider", config.map(PineryConfiguration::getProvider).orElse("Unknown"));
   }
 
+  /**
+   * Fetch a JSON array from Pinery
+   *
+   * <p>The response is parsed as it arrives, recording the size of the response and the time spent
+   * parsing it.
+   *
+   * @param baseUrl the URL of the Pinery server
+   * @param endpoint the path of the endpoint to fetch
+   * @param type the type of the items in the array
+   */
+  private <T> List<T> fetchList(String baseUrl, String endpoint, Class<T> type)
+      throws IOException, InterruptedException {
+    final var response =
+        HTTP_CLIENT.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + endpoint)).GET().build(),
+            BodyHandlers.ofInputStream());
+    try (final var input = new MeasuredInputStream(response.body())) {
+      if (response.statusCode() != 200) {
+        throw new IOException(
+            String.format("Pinery endpoint %s returned %d", endpoint, response.statusCode()));
+      }
+      final var start = System.nanoTime();
+      final List<T> result =
+          MAPPER.readValue(
+              input, MAPPER.getTypeFactory().constructCollectionType(List.class, type));
+      fetchBytes.labels(fileName().toString(), endpoint).set(input.bytes());
+      parseTime
+          .labels(fileName().toString(), endpoint)
+          .set((System.nanoTime() - start - input.waitTime()) / 1e9);
+      return result == null ? List.of() : result;
+    }
+  }
+
   private String getRunField(RunDto run, Function<RunDto, String> getField) {
     Optional<String> val = maybeGetRunField(run, getField);
     return val.orElse("");
@@ -832,7 +585,9 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
   @ShesmuInputSource
   public Stream<PineryIUSForAnalysisValue> streamIUS(boolean readStale) {
     try {
-      return readStale ? cache.getStale() : cache.get();
+      return (readStale ? items.getStale() : items.get())
+          .<Stream<PineryIUSForAnalysisValue>>map(i -> i.analysis().stream())
+          .orElseGet(() -> new ErrorableStream<>(Stream.empty(), false));
     } catch (Exception e) {
       return new ErrorableStream<>(Stream.empty(), false);
     }
@@ -841,7 +596,9 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
   @ShesmuInputSource
   public Stream<PineryIUSIncludeSkippedValue> streamAllIUS(boolean readStale) {
     try {
-      return readStale ? includeSkippedCache.getStale() : includeSkippedCache.get();
+      return (readStale ? items.getStale() : items.get())
+          .<Stream<PineryIUSIncludeSkippedValue>>map(i -> i.includeSkipped().stream())
+          .orElseGet(() -> new ErrorableStream<>(Stream.empty(), false));
     } catch (Exception e) {
       return new ErrorableStream<>(Stream.empty(), false);
     }
@@ -863,8 +620,7 @@ public class PinerySource extends JsonPluginFile<PineryConfiguration> {
     config = Optional.of(value);
     clinicalPipelines = value.getClinicalPipelines();
     projects.invalidate();
-    cache.invalidate();
-    includeSkippedCache.invalidate();
+    items.invalidate();
     return Optional.empty();
   }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 
 public final class FunctionConfig {
   private String command;
+  private int maxEntries;
   private List<Imyhat> parameters;
   private Imyhat returns;
   private int ttl = 60;
@@ -13,6 +14,10 @@ public final class FunctionConfig {
     return command;
   }
 
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
   public List<Imyhat> getParameters() {
     return parameters;
   }
@@ -29,6 +34,10 @@ public final class FunctionConfig {
     this.command = command;
   }
 
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
   public void setParameters(List<Imyhat> parameters) {
     this.parameters = parameters;
   }
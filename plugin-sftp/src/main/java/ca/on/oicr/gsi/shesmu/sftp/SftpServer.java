@@ -63,19 +63,21 @@ public class SftpServer extends JsonPluginFile<Configuration> {
     protected Optional<AlgebraicValue> fetch(Pair<Path, Boolean> fileName, Instant lastUpdated)
         throws IOException {
 
-      try (final var connection = connections.get()) {
-        final var attributes =
-            fileName.second()
-                ? connection.sftp().stat(fileName.first().toString())
-                : connection.sftp().lstat(fileName.first().toString());
-        final var type =
-            attributes.getType() == Type.SYMLINK
-                ? new AlgebraicValue(
+      try {
+        final var attributes = statBatcher.stat(fileName.first().toString(), fileName.second());
+        final AlgebraicValue type;
+        if (attributes.getType() == Type.SYMLINK) {
+          try (final var connection = connections.get()) {
+            type =
+                new AlgebraicValue(
                     attributes.getType().name(),
                     fileName
                         .first()
-                        .resolveSibling(connection.sftp().readlink(fileName.first().toString())))
-                : new AlgebraicValue(attributes.getType().name());
+                        .resolveSibling(connection.sftp().readlink(fileName.first().toString())));
+          }
+        } else {
+          type = new AlgebraicValue(attributes.getType().name());
+        }
 
         return Optional.of(
             new AlgebraicValue(
@@ -144,10 +146,12 @@ public class SftpServer extends JsonPluginFile<Configuration> {
   private final SshConnectionPool connections = new SshConnectionPool();
   private final Definer<SftpServer> definer;
   private final FileAttributeCache fileAttributes;
+  private final StatBatcher statBatcher;
 
   public SftpServer(Path fileName, String instanceName, Definer<SftpServer> definer) {
     super(fileName, instanceName, MAPPER, Configuration.class);
     fileAttributes = new FileAttributeCache(fileName);
+    statBatcher = new StatBatcher(fileName.toString(), connections);
     this.definer = definer;
   }
 
@@ -523,6 +527,7 @@ public class SftpServer extends JsonPluginFile<Configuration> {
               }
             }
           };
+      cache.maxEntries(entry.getValue().getMaxEntries());
       definer.defineFunction(
           entry.getKey(),
           String.format("Function run via SSH defined in %s.", fileName()),
@@ -0,0 +1,112 @@
+package ca.on.oicr.gsi.shesmu.sftp;
+
+import ca.on.oicr.gsi.prometheus.LatencyHistogram;
+import ca.on.oicr.gsi.shesmu.plugin.RequestBatcher;
+import ca.on.oicr.gsi.shesmu.plugin.RequestBatcher.Request;
+import ca.on.oicr.gsi.shesmu.sftp.SshConnectionPool.PooledSshConnection;
+import io.prometheus.client.Histogram;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import net.schmizz.concurrent.Promise;
+import net.schmizz.sshj.sftp.FileAttributes;
+import net.schmizz.sshj.sftp.PacketType;
+import net.schmizz.sshj.sftp.Response;
+import net.schmizz.sshj.sftp.SFTPException;
+
+/**
+ * Combines concurrent <code>stat</code> requests into batches sent over a single SFTP channel
+ *
+ * <p>All the requests in a batch are sent before any of the responses are read, so a batch costs a
+ * single round trip. See {@link RequestBatcher} for how requests are combined.
+ */
+final class StatBatcher {
+  private record Lookup(String path, boolean resolveLinks) {}
+
+  private static final Histogram batchSize =
+      Histogram.build()
+          .buckets(1, 2, 5, 10, 20, 50, 100, 200, 500, 1000)
+          .name("shesmu_sftp_stat_batch_size")
+          .help("The number of stat requests sent to the SFTP server in a single batch.")
+          .labelNames("filename")
+          .register();
+  private static final LatencyHistogram batchTime =
+      new LatencyHistogram(
+          "shesmu_sftp_stat_batch_time",
+          "The time to send a batch of stat requests and receive all the responses in seconds.",
+          "filename");
+  private static final int MAX_BATCH = 1000;
+  private static final int MAX_IN_FLIGHT = 4;
+  private final RequestBatcher<Lookup, FileAttributes> batcher =
+      new RequestBatcher<>(MAX_BATCH, MAX_IN_FLIGHT, this::process);
+  private final Supplier<PooledSshConnection> connections;
+  private final String name;
+
+  StatBatcher(String name, Supplier<PooledSshConnection> connections) {
+    this.name = name;
+    this.connections = connections;
+  }
+
+  private void process(List<Request<Lookup, FileAttributes>> batch) throws IOException {
+    final var startTime = System.nanoTime();
+    batchSize.labels(name).observe(batch.size());
+    try (final var connection = connections.get()) {
+      final var engine = connection.sftp().getSFTPEngine();
+      // The timeout applies to the whole batch rather than each response
+      final var deadline =
+          System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(engine.getTimeoutMs());
+      final List<Promise<Response, SFTPException>> responses = new ArrayList<>(batch.size());
+      for (final var request : batch) {
+        responses.add(
+            engine.request(
+                engine
+                    .newRequest(
+                        request.input().resolveLinks() ? PacketType.STAT : PacketType.LSTAT)
+                    .putString(request.input().path())));
+      }
+      for (var i = 0; i < batch.size(); i++) {
+        try {
+          batch
+              .get(i)
+              .complete(
+                  responses
+                      .get(i)
+                      .retrieve(
+                          Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                      .ensurePacketTypeIs(PacketType.ATTRS)
+                      .readFileAttributes());
+        } catch (SFTPException e) {
+          // This is a problem with one file (e.g., it doesn't exist), so the rest of the batch can
+          // continue
+          batch.get(i).fail(e);
+        }
+      }
+    } finally {
+      batchTime.observe(startTime, name);
+    }
+  }
+
+  /**
+   * Get the attributes of a file
+   *
+   * @param path the path to the file
+   * @param resolveLinks if true, get the attributes of the target of a symlink; otherwise, get the
+   *     attributes of the symlink itself
+   */
+  public FileAttributes stat(String path, boolean resolveLinks) throws IOException {
+    try {
+      return batcher.apply(new Lookup(path, resolveLinks));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for stat", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+}
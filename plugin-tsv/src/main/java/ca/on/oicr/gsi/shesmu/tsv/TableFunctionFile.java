@@ -10,7 +10,12 @@ import io.prometheus.client.Gauge;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
@@ -20,28 +25,134 @@ import java.util.stream.IntStream;
 
 class TableFunctionFile extends PluginFile {
 
+  /**
+   * A lookup table where each row has a value for each parameter or a wildcard
+   *
+   * <p>The result is the output of the first row where every parameter matches. Rather than check
+   * every row, rows are divided into tiers: all the rows in a tier have wildcards in the same
+   * columns. Each tier has a hash table over its non-wildcard columns, holding the first row with
+   * those values, so finding the first match in a tier is a single hash lookup. The tiers are
+   * searched in order of their earliest row, which allows stopping once no remaining tier can
+   * contain an earlier match.
+   */
   static final class Table implements VariadicFunction {
+    private static final class Tier {
+      private final int[] columns;
+      private final int firstRow;
+      private final int mask;
+      private final int[] slots;
+
+      private Tier(BitSet wildcards, List<Object[]> attempts, List<Integer> rows) {
+        columns =
+            IntStream.range(0, attempts.get(rows.get(0)).length - 1)
+                .filter(column -> !wildcards.get(column))
+                .toArray();
+        firstRow = rows.get(0);
+        // Keep the table at most half full so probe sequences stay short
+        var size = 1;
+        while (size < rows.size() * 2) {
+          size <<= 1;
+        }
+        mask = size - 1;
+        slots = new int[size];
+        Arrays.fill(slots, -1);
+        for (final int row : rows) {
+          final var attempt = attempts.get(row);
+          var slot = hash(attempt) & mask;
+          while (true) {
+            if (slots[slot] == -1) {
+              slots[slot] = row;
+              break;
+            }
+            // If there's an earlier row with the same values, it will always be matched first
+            if (matches(attempts.get(slots[slot]), attempt)) {
+              break;
+            }
+            slot = (slot + 1) & mask;
+          }
+        }
+      }
+
+      private int find(List<Object[]> attempts, Object[] parameters) {
+        var slot = hash(parameters) & mask;
+        while (slots[slot] != -1) {
+          final var row = slots[slot];
+          if (matches(attempts.get(row), parameters)) {
+            return row;
+          }
+          slot = (slot + 1) & mask;
+        }
+        return -1;
+      }
+
+      private int hash(Object[] values) {
+        var hash = 1;
+        for (final var column : columns) {
+          hash = 31 * hash + Objects.hashCode(values[column]);
+        }
+        // Spread the bits since only the low bits are used to select a slot
+        return hash ^ (hash >>> 16);
+      }
+
+      private boolean matches(Object[] attempt, Object[] values) {
+        for (final var column : columns) {
+          if (!attempt[column].equals(values[column])) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+
     private final List<Object[]> attempts;
     private final Object defaultValue;
+    private final Tier[] tiers;
 
     public Table(List<Object[]> attempts, Object defaultValue) {
       super();
       this.attempts = attempts;
       this.defaultValue = defaultValue;
+      // Group rows by which columns are wildcards; since the map preserves insertion order, the
+      // tiers are ordered by their first row
+      final Map<BitSet, List<Integer>> rows = new LinkedHashMap<>();
+      for (var row = 0; row < attempts.size(); row++) {
+        final var attempt = attempts.get(row);
+        // A row with no output can never be selected
+        if (attempt[attempt.length - 1] == null) {
+          continue;
+        }
+        final var wildcards = new BitSet();
+        for (var column = 0; column < attempt.length - 1; column++) {
+          if (attempt[column] == null) {
+            wildcards.set(column);
+          }
+        }
+        rows.computeIfAbsent(wildcards, k -> new ArrayList<>()).add(row);
+      }
+      tiers =
+          rows.entrySet().stream()
+              .map(e -> new Tier(e.getKey(), attempts, e.getValue()))
+              .toArray(Tier[]::new);
     }
 
     @Override
     public Object apply(Object... parameters) {
-      return attempts.stream()
-          .map(
-              attempt ->
-                  IntStream.range(0, parameters.length)
-                          .allMatch(i -> attempt[i] == null || attempt[i].equals(parameters[i]))
-                      ? attempt[attempt.length - 1]
-                      : null)
-          .filter(Objects::nonNull)
-          .findFirst()
-          .orElse(defaultValue);
+      var best = -1;
+      for (final var tier : tiers) {
+        // Tiers are sorted by their first row, so no later tier can have an earlier match
+        if (best != -1 && best < tier.firstRow) {
+          break;
+        }
+        final var row = tier.find(attempts, parameters);
+        if (row != -1 && (best == -1 || row < best)) {
+          best = row;
+        }
+      }
+      if (best == -1) {
+        return defaultValue;
+      }
+      final var attempt = attempts.get(best);
+      return attempt[attempt.length - 1];
     }
   }
 
@@ -0,0 +1,64 @@
+package ca.on.oicr.gsi.shesmu.tsv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TableTest {
+
+  private static Object scan(List<Object[]> attempts, Object defaultValue, Object... parameters) {
+    for (final var attempt : attempts) {
+      var matches = true;
+      for (var i = 0; i < parameters.length; i++) {
+        if (attempt[i] != null && !attempt[i].equals(parameters[i])) {
+          matches = false;
+          break;
+        }
+      }
+      if (matches && attempt[attempt.length - 1] != null) {
+        return attempt[attempt.length - 1];
+      }
+    }
+    return defaultValue;
+  }
+
+  @Test
+  public void testFirstMatch() {
+    final List<Object[]> attempts =
+        List.of(
+            new Object[] {"a", null, 1L},
+            new Object[] {null, "x", 2L},
+            new Object[] {"a", "x", 3L},
+            new Object[] {null, null, 4L});
+    final var table = new TableFunctionFile.Table(attempts, 0L);
+    Assertions.assertEquals(1L, table.apply("a", "x"));
+    Assertions.assertEquals(2L, table.apply("b", "x"));
+    Assertions.assertEquals(4L, table.apply("b", "y"));
+  }
+
+  @Test
+  public void testMatchesScan() {
+    final var random = new Random(42);
+    for (var columns = 1; columns < 5; columns++) {
+      final List<Object[]> attempts = new ArrayList<>();
+      for (var row = 0; row < 500; row++) {
+        final var attempt = new Object[columns + 1];
+        for (var column = 0; column < columns; column++) {
+          attempt[column] = random.nextInt(4) == 0 ? null : "v" + random.nextInt(5);
+        }
+        attempt[columns] = (long) row;
+        attempts.add(attempt);
+      }
+      final var table = new TableFunctionFile.Table(attempts, -1L);
+      for (var i = 0; i < 500; i++) {
+        final var parameters = new Object[columns];
+        for (var column = 0; column < columns; column++) {
+          parameters[column] = "v" + random.nextInt(6);
+        }
+        Assertions.assertEquals(scan(attempts, -1L, parameters), table.apply(parameters));
+      }
+    }
+  }
+}
@@ -2,12 +2,17 @@ package ca.on.oicr.gsi.shesmu.vidarr;
 
 public class Configuration {
   private Long defaultMaxSubmissionDelay;
+  private Integer maxCachedWorkflowRuns;
   private String url;
 
   public Long getDefaultMaxSubmissionDelay() {
     return defaultMaxSubmissionDelay;
   }
 
+  public Integer getMaxCachedWorkflowRuns() {
+    return maxCachedWorkflowRuns;
+  }
+
   public String getUrl() {
     return url;
   }
@@ -16,6 +21,10 @@ public class Configuration {
     this.defaultMaxSubmissionDelay = defaultMaxSubmissionDelay;
   }
 
+  public void setMaxCachedWorkflowRuns(Integer maxCachedWorkflowRuns) {
+    this.maxCachedWorkflowRuns = maxCachedWorkflowRuns;
+  }
+
   public void setUrl(String url) {
     this.url = url;
   }
@@ -64,15 +64,7 @@ final class RunStateMonitor extends RunState {
             HttpRequest.newBuilder(workflowRunUrl).GET().build(),
             new JsonBodyHandler<>(MAPPER, WorkflowRunStatusResponse.class));
     if (response.statusCode() == 200) {
-      final var result = response.body().get();
-      final var status = actionStatusForWorkflowRun(result);
-      return new PerformResult(
-          status == ActionState.FAILED
-              ? List.of(
-                  "Workflow run has failed while executing. See workflow run logs for details.")
-              : List.of(),
-          status,
-          new RunStateMonitor(workflowRunUrl.toASCIIString(), result));
+      return create(workflowRunUrl, response.body().get());
     } else if (response.statusCode() == 404) {
       return new PerformResult(
           List.of("Workflow run was deleted."), ActionState.WAITING, new RunStateAttemptSubmit(0));
@@ -84,6 +76,16 @@ final class RunStateMonitor extends RunState {
     }
   }
 
+  private static PerformResult create(URI workflowRunUrl, WorkflowRunStatusResponse result) {
+    final var status = actionStatusForWorkflowRun(result);
+    return new PerformResult(
+        status == ActionState.FAILED
+            ? List.of("Workflow run has failed while executing. See workflow run logs for details.")
+            : List.of(),
+        status,
+        new RunStateMonitor(workflowRunUrl.toASCIIString(), result));
+  }
+
   private final WorkflowRunStatusResponse status;
   private final String workflowRunUrl;
 
@@ -184,6 +186,12 @@ final class RunStateMonitor extends RunState {
       Duration lastGeneratedByOlive,
       boolean isOliveLive)
       throws IOException, InterruptedException {
+    // Most workflow runs are still active, so use the shared index rather than asking the server
+    // about each one; if it isn't in the index, it has probably just finished
+    final var indexed = StatusIndex.get(vidarrUrl).find(status.getId());
+    if (indexed.isPresent()) {
+      return create(vidarrUrl.resolve("/api/status/" + status.getId()), indexed.get());
+    }
     return create(vidarrUrl, status.getId());
   }
 
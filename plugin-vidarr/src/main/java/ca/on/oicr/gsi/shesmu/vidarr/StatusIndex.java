@@ -0,0 +1,97 @@
+package ca.on.oicr.gsi.shesmu.vidarr;
+
+import static ca.on.oicr.gsi.shesmu.vidarr.VidarrPlugin.MAPPER;
+
+import ca.on.oicr.gsi.shesmu.plugin.cache.InitialCachePopulationException;
+import ca.on.oicr.gsi.shesmu.plugin.cache.RefreshMode;
+import ca.on.oicr.gsi.shesmu.plugin.cache.SimpleRecord;
+import ca.on.oicr.gsi.shesmu.plugin.cache.ValueCache;
+import ca.on.oicr.gsi.vidarr.JsonBodyHandler;
+import ca.on.oicr.gsi.vidarr.api.WorkflowRunStatusResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The status of all the active workflow runs on a Vidarr server
+ *
+ * <p>Checking the status of each workflow run individually requires one request per action every
+ * time the action is performed. Instead, the status of every active workflow run is fetched in a
+ * single request and shared by all the actions that use the same server. Workflow runs that are not
+ * in the index (because they have completed or were only just submitted) must still be checked
+ * individually, as must all workflow runs if the index has not been refreshed recently.
+ */
+final class StatusIndex extends ValueCache<Optional<Map<String, WorkflowRunStatusResponse>>> {
+  private static final Map<URI, StatusIndex> INDICES = new ConcurrentHashMap<>();
+
+  /**
+   * The number of TTL periods after which an index that has failed to refresh is no longer trusted
+   */
+  private static final int MAX_STALE_TTLS = 5;
+
+  /**
+   * Get the index for a Vidarr server
+   *
+   * @param vidarrUrl the URL of the Vidarr server
+   */
+  public static StatusIndex get(URI vidarrUrl) {
+    return INDICES.computeIfAbsent(vidarrUrl, StatusIndex::new);
+  }
+
+  private final URI vidarrUrl;
+
+  private StatusIndex(URI vidarrUrl) {
+    super("vidarr-status " + vidarrUrl, 1, SimpleRecord::new);
+    this.vidarrUrl = vidarrUrl;
+    // Actions can use a slightly out-of-date status, so there is no need to make them wait
+    refreshMode(RefreshMode.STALE_WHILE_REVALIDATE);
+  }
+
+  @Override
+  protected Optional<Map<String, WorkflowRunStatusResponse>> fetch(Instant lastUpdated)
+      throws Exception {
+    // If this fails, the cache will keep using the previous index
+    final var response =
+        VidarrPlugin.CLIENT.send(
+            HttpRequest.newBuilder(vidarrUrl.resolve("/api/status")).GET().build(),
+            new JsonBodyHandler<>(MAPPER, WorkflowRunStatusResponse[].class));
+    if (response.statusCode() != 200) {
+      throw new IOException(
+          String.format(
+              "Failed to fetch status index from %s: HTTP %d", vidarrUrl, response.statusCode()));
+    }
+    final Map<String, WorkflowRunStatusResponse> statuses = new HashMap<>();
+    for (final var status : response.body().get()) {
+      statuses.put(status.getId(), status);
+    }
+    return Optional.of(statuses);
+  }
+
+  /**
+   * Find the status of a workflow run, if it is active
+   *
+   * @param id the workflow run identifier
+   */
+  public Optional<WorkflowRunStatusResponse> find(String id) {
+    try {
+      final var index = get();
+      // If the index hasn't been refreshed in a long time, the server is probably having trouble,
+      // so don't hide that behind an old status; checking individually will report the problem
+      if (lastUpdated()
+          .plus(Duration.ofMinutes(ttl() * MAX_STALE_TTLS))
+          .isBefore(Instant.now())) {
+        return Optional.empty();
+      }
+      return index.map(statuses -> statuses.get(id));
+    } catch (InitialCachePopulationException e) {
+      // If the index has never been fetched, every workflow run will be checked individually
+      return Optional.empty();
+    }
+  }
+}
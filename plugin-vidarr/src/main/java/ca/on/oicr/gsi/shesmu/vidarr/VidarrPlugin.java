@@ -39,6 +39,7 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -279,6 +280,7 @@ public class VidarrPlugin extends JsonPluginFile<Configuration> {
         submissionPolicy = SubmissionPolicy.maxDelay(value.getDefaultMaxSubmissionDelay());
       }
       url = Optional.of(URI.create(value.getUrl()));
+      workflowRunInfo.maxEntries(Objects.requireNonNullElse(value.getMaxCachedWorkflowRuns(), 0));
       final var workflowsResult =
           CLIENT.send(
               HttpRequest.newBuilder(url.get().resolve("/api/workflows")).GET().build(),
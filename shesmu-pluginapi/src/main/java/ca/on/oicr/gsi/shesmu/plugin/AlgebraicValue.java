@@ -7,6 +7,8 @@ import java.util.stream.Collectors;
 /** A fixed-length list of heterogeneous values with type information */
 public final class AlgebraicValue {
   private final Object[] elements;
+  // Zero means the hash has not been computed yet, as in String
+  private int hash;
   private final String name;
 
   /**
@@ -30,6 +32,9 @@ public final class AlgebraicValue {
       return false;
     }
     var tuple = (AlgebraicValue) o;
+    if (hash != 0 && tuple.hash != 0 && hash != tuple.hash) {
+      return false;
+    }
     return name.equals(tuple.name) && Arrays.equals(elements, tuple.elements);
   }
 
@@ -45,8 +50,12 @@ public final class AlgebraicValue {
 
   @Override
   public int hashCode() {
-    var result = Objects.hash(name);
-    result = 31 * result + Arrays.hashCode(elements);
+    var result = hash;
+    if (result == 0) {
+      result = Objects.hash(name);
+      result = 31 * result + Arrays.hashCode(elements);
+      hash = result;
+    }
     return result;
   }
 
@@ -0,0 +1,137 @@
+package ca.on.oicr.gsi.shesmu.plugin;
+
+import io.prometheus.client.Gauge;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pool of canonical instances of immutable values
+ *
+ * <p>Input formats often contain the same value (<i>e.g.</i>, project, run, and workflow names)
+ * many times over. Interning these values means only one copy is kept in memory. Values are held
+ * weakly, so an interned value is discarded once nothing else uses it.
+ *
+ * <p>The server only interns input values it reads from JSON. Input formats provided by plugins are
+ * made of the plugin's own objects, so a plugin that wants its values interned must use these pools
+ * itself when it creates them.
+ *
+ * @param <T> the type of values being interned; they must be immutable and have sensible
+ *     equals/hashcode methods
+ */
+public final class Interner<T> {
+  private static final class Key<T> extends WeakReference<T> {
+    private final int hash;
+
+    private Key(T value, ReferenceQueue<T> queue) {
+      super(value, queue);
+      hash = value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final var other = (Key<?>) obj;
+      if (hash != other.hash) {
+        return false;
+      }
+      final var value = get();
+      return value != null && value.equals(other.get());
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final Gauge size =
+      Gauge.build("shesmu_intern_pool_size", "The number of values held in an interning pool.")
+          .labelNames("pool")
+          .register();
+
+  /** A shared pool for strings read from input formats */
+  public static final Interner<String> STRINGS = new Interner<>("string");
+
+  /** A shared pool for tuples and objects read from input formats */
+  public static final Interner<Tuple> TUPLES = new Interner<>("tuple");
+
+  /**
+   * Intern a value in one of the shared pools if it is a string or a tuple
+   *
+   * @param value the value to intern
+   * @return the canonical instance of the value or the original value if it is not a type that
+   *     can be interned
+   */
+  public static Object intern(Object value) {
+    if (value instanceof String) {
+      return STRINGS.get((String) value);
+    } else if (value instanceof Tuple) {
+      return TUPLES.get((Tuple) value);
+    } else {
+      return value;
+    }
+  }
+
+  private final Gauge.Child gauge;
+  private final Map<Key<T>, Key<T>> pool = new ConcurrentHashMap<>();
+  private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+  /**
+   * Create a new pool
+   *
+   * @param name the name of the pool for monitoring purposes
+   */
+  public Interner(String name) {
+    gauge = size.labels(name);
+  }
+
+  /**
+   * Get the canonical instance of a value
+   *
+   * @param value the value to find; if no equal value is in the pool, this value becomes the
+   *     canonical instance
+   * @return the canonical instance, or null if the value is null
+   */
+  public T get(T value) {
+    if (value == null) {
+      return null;
+    }
+    purge();
+    final var key = new Key<>(value, queue);
+    while (true) {
+      final var existing = pool.putIfAbsent(key, key);
+      if (existing == null) {
+        gauge.set(pool.size());
+        return value;
+      }
+      final var canonical = existing.get();
+      if (canonical != null) {
+        // Our key was never added to the pool, so it must not be enqueued later
+        key.clear();
+        return canonical;
+      }
+      // The existing entry was collected but has not been purged yet, so replace it
+      pool.remove(existing, existing);
+    }
+  }
+
+  private void purge() {
+    Object key;
+    while ((key = queue.poll()) != null) {
+      pool.remove(key, key);
+    }
+  }
+
+  /** The number of values currently held in the pool */
+  public int size() {
+    purge();
+    return pool.size();
+  }
+}
@@ -0,0 +1,182 @@
+package ca.on.oicr.gsi.shesmu.plugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines concurrent requests into batches that are performed together
+ *
+ * <p>While a batch is in flight, new requests accumulate. When a batch completes, one of the
+ * waiting threads takes all the accumulated requests (up to a limit) and performs them as the next
+ * batch. If other threads also have requests waiting, the thread performing a batch waits briefly
+ * for more requests to arrive first. Batching only helps concurrent callers (e.g., actions or
+ * olives using the <code>Parallel</code> pragma); a lone caller's request is performed immediately
+ * as a batch of one, so there is no added delay.
+ *
+ * @param <I> the type of the requests
+ * @param <O> the type of the results
+ */
+public final class RequestBatcher<I, O> {
+  /**
+   * Performs a batch of requests
+   *
+   * @param <I> the type of the requests
+   * @param <O> the type of the results
+   */
+  public interface Processor<I, O> {
+    /**
+     * Perform a batch of requests
+     *
+     * <p>Every request in the batch should be completed or failed. If this method throws, any
+     * requests that have not been completed fail with the exception thrown.
+     *
+     * @param batch the requests to perform, in the order they were made
+     */
+    void process(List<Request<I, O>> batch) throws Exception;
+  }
+
+  /**
+   * A single request in a batch
+   *
+   * @param <I> the type of the request
+   * @param <O> the type of the result
+   */
+  public static final class Request<I, O> {
+    private final I input;
+    private final CompletableFuture<O> result = new CompletableFuture<>();
+
+    private Request(I input) {
+      this.input = input;
+    }
+
+    /**
+     * Provide the result of this request
+     *
+     * @param output the result
+     */
+    public void complete(O output) {
+      result.complete(output);
+    }
+
+    /**
+     * Fail this request without affecting the others in the batch
+     *
+     * @param cause the reason the request failed
+     */
+    public void fail(Throwable cause) {
+      result.completeExceptionally(cause);
+    }
+
+    /** The request to perform */
+    public I input() {
+      return input;
+    }
+  }
+
+  private static final long COLLECTION_WINDOW = TimeUnit.MILLISECONDS.toNanos(2);
+  private boolean collecting;
+  private int inFlight;
+  private final int maxBatchSize;
+  private final int maxInFlight;
+  private final Deque<Request<I, O>> pending = new ArrayDeque<>();
+  private final Processor<I, O> processor;
+
+  /**
+   * Create a new batcher
+   *
+   * @param maxBatchSize the maximum number of requests in a single batch
+   * @param maxInFlight the maximum number of batches that can be performed at once
+   * @param processor the callback that performs a batch
+   */
+  public RequestBatcher(int maxBatchSize, int maxInFlight, Processor<I, O> processor) {
+    if (maxBatchSize < 1 || maxInFlight < 1) {
+      throw new IllegalArgumentException("Batch size and batches in flight must be at least 1.");
+    }
+    this.maxBatchSize = maxBatchSize;
+    this.maxInFlight = maxInFlight;
+    this.processor = processor;
+  }
+
+  /**
+   * Perform a request, possibly combined with other concurrent requests
+   *
+   * @param input the request to perform
+   * @return the result of the request
+   * @throws ExecutionException if the request failed; the cause is the exception that failed it
+   * @throws InterruptedException if interrupted while waiting for the batch
+   */
+  public O apply(I input) throws ExecutionException, InterruptedException {
+    final var request = new Request<I, O>(input);
+    synchronized (this) {
+      pending.addLast(request);
+      if (pending.size() >= maxBatchSize) {
+        notifyAll();
+      }
+    }
+    while (!request.result.isDone()) {
+      final List<Request<I, O>> batch = new ArrayList<>();
+      synchronized (this) {
+        // If our request is in a batch in flight, that batch will wake us up once it completes
+        while (!request.result.isDone()
+            && (collecting || inFlight >= maxInFlight || pending.isEmpty())) {
+          wait();
+        }
+        if (request.result.isDone()) {
+          break;
+        }
+        // Only callers whose requests are still waiting show there is concurrent demand; callers
+        // whose requests are in flight cannot add to this batch
+        if (pending.size() > 1) {
+          collecting = true;
+          try {
+            final var deadline = System.nanoTime() + COLLECTION_WINDOW;
+            for (var remaining = COLLECTION_WINDOW;
+                remaining > 0 && pending.size() < maxBatchSize;
+                remaining = deadline - System.nanoTime()) {
+              TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+          } finally {
+            collecting = false;
+            notifyAll();
+          }
+        }
+        while (batch.size() < maxBatchSize && !pending.isEmpty()) {
+          batch.add(pending.pollFirst());
+        }
+        inFlight++;
+      }
+      try {
+        run(batch);
+      } finally {
+        synchronized (this) {
+          inFlight--;
+          notifyAll();
+        }
+      }
+    }
+    return request.result.get();
+  }
+
+  private void run(List<Request<I, O>> batch) {
+    try {
+      processor.process(batch);
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      for (final var request : batch) {
+        request.fail(e);
+      }
+    } finally {
+      // If anything unexpected happened, the other threads must not be left waiting forever
+      for (final var request : batch) {
+        request.fail(new IllegalStateException("Request was not completed by its batch."));
+      }
+    }
+  }
+}
@@ -10,10 +10,12 @@ import java.util.stream.Stream;
  * A fixed-length list of heterogeneous values
  *
  * <p>This class is mostly a thin wrapper on an array of objects with sensible equals/hashcode
- * methods
+ * methods. Since tuples are immutable, the hash code is computed once and cached.
  */
 public final class Tuple {
   private final Object[] elements;
+  // Zero means the hash has not been computed yet, as in String
+  private int hash;
 
   /**
    * Create a new tuple from the specified array
@@ -48,6 +50,9 @@ public final class Tuple {
       return false;
     }
     final var other = (Tuple) obj;
+    if (hash != 0 && other.hash != 0 && hash != other.hash) {
+      return false;
+    }
     return Arrays.equals(elements, other.elements);
   }
 
@@ -62,9 +67,13 @@ public final class Tuple {
 
   @Override
   public int hashCode() {
-    final var prime = 31;
-    var result = 1;
-    result = prime * result + Arrays.hashCode(elements);
+    var result = hash;
+    if (result == 0) {
+      final var prime = 31;
+      result = 1;
+      result = prime * result + Arrays.hashCode(elements);
+      hash = result;
+    }
     return result;
   }
 
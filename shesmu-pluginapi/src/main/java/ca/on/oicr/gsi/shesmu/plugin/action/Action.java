@@ -42,7 +42,8 @@ public abstract class Action {
    * <p>Since the scheduler will deduplicate the same action many times, most actions are fated to
    * die quickly. This method will be called to indicate that this instance of the object will
    * actually be used. It is called after {@link #prepare()} and before {@link
-   * #perform(ActionServices, Duration, boolean)}.
+   * #perform(ActionServices, Duration, boolean)}. It may not be called until just before the action
+   * is performed for the first time.
    *
    * @param actionId the action ID recorded for this action
    */
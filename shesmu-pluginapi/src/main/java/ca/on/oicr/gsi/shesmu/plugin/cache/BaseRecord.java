@@ -2,6 +2,7 @@ package ca.on.oicr.gsi.shesmu.plugin.cache;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Takes a stream of items and stores them. When updated, it discards the existing items and
@@ -14,6 +15,7 @@ public abstract class BaseRecord<V, S> implements Record<V> {
   private Instant fetchTime = Instant.EPOCH;
   protected final Updater<V> fetcher;
   private boolean initialState = true;
+  private Duration refreshAhead = Duration.ZERO;
   private boolean regenerating;
   private S state;
 
@@ -47,43 +49,85 @@ public abstract class BaseRecord<V, S> implements Record<V> {
     return unpack(state);
   }
 
+  /**
+   * Fetch a new value and store it
+   *
+   * @param context information about the owner's cache to log if an exception occurs
+   * @return true if the value was replaced
+   */
+  private boolean fetch(String context) {
+    try (var timer = refreshLatency.start(fetcher.owner().name())) {
+      refreshStartTime.labels(fetcher.owner().name()).setToCurrentTime();
+      S result = update(state, fetchTime);
+      if (result != null) {
+        synchronized (this) {
+          state = result;
+          fetchTime = Instant.now();
+          refreshAhead = randomRefreshAhead();
+          refreshEndTime
+              .labels(fetcher.owner().name())
+              .setToCurrentTime(); // Can't use the Instant we just created unfortunately
+          initialState = false;
+        }
+        return true;
+      }
+    } catch (final Exception e) {
+      context += " " + e.getMessage();
+      System.err.printf("Exception occurred while refreshing cache %s is as follows:\n", context);
+      e.printStackTrace();
+      staleRefreshError.labels(fetcher.owner().name()).inc();
+    } finally {
+      synchronized (this) {
+        regenerating = false;
+      }
+    }
+    return false;
+  }
+
+  private Duration randomRefreshAhead() {
+    return Duration.ofSeconds(
+        (long) (ThreadLocalRandom.current().nextDouble(0.1) * fetcher.owner().ttl() * 60));
+  }
+
   @Override
   public final V refresh(String context) {
     final boolean doRefresh;
+    final boolean background;
     boolean shouldThrow;
     synchronized (this) {
       final var now = Instant.now();
-      doRefresh =
-          Duration.between(fetchTime, now).toMinutes() > fetcher.owner().ttl() && !regenerating;
+      final var mode = fetcher.owner().refreshMode();
+      final var age = Duration.between(fetchTime, now);
+      final var expired = age.toMinutes() > fetcher.owner().ttl();
       shouldThrow = initialState;
+      // If there is no value or it was invalidated, the caller has to wait
+      background =
+          mode != RefreshMode.SYNCHRONOUS && !initialState && !fetchTime.equals(Instant.EPOCH);
+      final var due =
+          expired
+              || background
+                  && mode == RefreshMode.PROACTIVE
+                  && age.compareTo(
+                          Duration.ofMinutes(fetcher.owner().ttl()).minus(refreshAhead))
+                      > 0;
+      doRefresh = due && !regenerating;
       if (doRefresh) {
         regenerating = true;
       }
+      if (expired && !initialState && (background || !doRefresh)) {
+        staleServed.labels(fetcher.owner().name()).inc();
+      }
     }
     if (doRefresh) {
-      try (var timer = refreshLatency.start(fetcher.owner().name())) {
-        refreshStartTime.labels(fetcher.owner().name()).setToCurrentTime();
-        S result = update(state, fetchTime);
-        if (result != null) {
+      if (background) {
+        if (!RefreshExecutor.submit(() -> fetch(context))) {
+          // The queue is full, so let the next caller try again
           synchronized (this) {
-            state = result;
-            fetchTime = Instant.now();
-            refreshEndTime
-                .labels(fetcher.owner().name())
-                .setToCurrentTime(); // Can't use the Instant we just created unfortunately
-            initialState = false;
+            regenerating = false;
           }
-          shouldThrow = false;
-        }
-      } catch (final Exception e) {
-        context += " " + e.getMessage();
-        System.err.printf("Exception occurred while refreshing cache %s is as follows:\n", context);
-        e.printStackTrace();
-        staleRefreshError.labels(fetcher.owner().name()).inc();
-      } finally {
-        synchronized (this) {
-          regenerating = false;
         }
+      } else if (fetch(context)) {
+        shouldThrow = false;
       }
     }
     if (shouldThrow) {
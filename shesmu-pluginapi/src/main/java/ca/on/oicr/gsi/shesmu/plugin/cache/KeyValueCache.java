@@ -2,6 +2,7 @@ package ca.on.oicr.gsi.shesmu.plugin.cache;
 
 import ca.on.oicr.gsi.Pair;
 import ca.on.oicr.gsi.prometheus.LatencyHistogram;
+import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 import java.lang.ref.SoftReference;
@@ -54,6 +55,12 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
       Gauge.build("shesmu_cache_kv_item_count", "Number of items in a cache.")
           .labelNames("name")
           .register();
+  private static final Counter evictions =
+      Counter.build(
+              "shesmu_cache_kv_evictions",
+              "The number of items removed from a cache because it was full.")
+          .labelNames("name")
+          .register();
   private static final Histogram fetchCpuTime =
       Histogram.build()
           .buckets(1.0, 5.0, 10.0, 30.0, 60.0, 300.0, 600.0, 3600.0)
@@ -68,6 +75,18 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
       Gauge.build("shesmu_cache_kv_max_inner_count", "The largest collection stored in a cache.")
           .labelNames("name")
           .register();
+  private static final Gauge maxEntriesValue =
+      Gauge.build(
+              "shesmu_cache_kv_max_entries",
+              "The maximum number of items allowed in a cache or 0 if unlimited.")
+          .labelNames("name")
+          .register();
+  private static final Gauge retainedBytes =
+      Gauge.build(
+              "shesmu_cache_kv_retained_bytes",
+              "The estimated number of bytes used by the items in a cache.")
+          .labelNames("name")
+          .register();
   private static final Gauge ttlValue =
       Gauge.build("shesmu_cache_kv_ttl", "The time-to-live of a cache, in minutes.")
           .labelNames("name")
@@ -80,7 +99,8 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
   private long maxCount = 0;
   private final String name;
   private final RecordFactory<V> recordFactory;
-  private final Map<K, Record<V>> records = new ConcurrentHashMap<>();
+  private final RecordMap<K, V> records;
+  private volatile RefreshMode refreshMode = RefreshMode.SYNCHRONOUS;
   private int ttl;
 
   /**
@@ -94,6 +114,7 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
     this.name = name;
     this.ttl = ttl;
     this.recordFactory = recordFactory;
+    records = new RecordMap<>(evictions.labels(name), retainedBytes.labels(name));
     ttlValue.labels(name).set(ttl);
     // WARNING: Passing "this" outside constructor means that objects are
     // accessible before completely constructed
@@ -118,8 +139,7 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
    *     is in an error state
    */
   public final V get(K key) {
-    final var record =
-        records.computeIfAbsent(key, k -> recordFactory.create(new KeyValueUpdater(k)));
+    final var record = records.get(key, k -> recordFactory.create(new KeyValueUpdater(k)));
     maxCount = Math.max(maxCount, record.collectionSize());
     innerCount.labels(name).set(maxCount);
     count.labels(name).set(records.size());
@@ -133,13 +153,12 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
    * @return the last value that was fetched
    */
   public final V getStale(K key) {
-    final var record =
-        records.computeIfAbsent(key, k -> recordFactory.create(new KeyValueUpdater(k)));
+    final var record = records.get(key, k -> recordFactory.create(new KeyValueUpdater(k)));
     return record.readStale();
   }
 
   public final void invalidate(K key) {
-    final var record = records.get(key);
+    final var record = records.getIfPresent(key);
     if (record != null) {
       record.invalidate();
     }
@@ -152,7 +171,29 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
   }
 
   public final Iterator<Map.Entry<K, Record<V>>> iterator() {
-    return records.entrySet().iterator();
+    return records.iterator();
+  }
+
+  /** The number of items that have been removed from this cache because it was full */
+  public final long evictions() {
+    return records.evictions();
+  }
+
+  /** The maximum number of items allowed in this cache, or 0 if unlimited */
+  public final int maxEntries() {
+    return records.maxEntries();
+  }
+
+  /**
+   * Limit the number of items stored in this cache
+   *
+   * <p>If the cache has more items, the least recently used items will be discarded.
+   *
+   * @param maxEntries the maximum number of items, or 0 to not limit the number of items
+   */
+  public final void maxEntries(int maxEntries) {
+    records.maxEntries(maxEntries);
+    maxEntriesValue.labels(name).set(records.maxEntries());
   }
 
   @Override
@@ -160,6 +201,25 @@ public abstract class KeyValueCache<K, V> implements Owner, Iterable<Map.Entry<K
     return name;
   }
 
+  /** The estimated number of bytes used by the items in this cache */
+  public final long retainedBytes() {
+    return records.retainedBytes();
+  }
+
+  @Override
+  public final RefreshMode refreshMode() {
+    return refreshMode;
+  }
+
+  /**
+   * Change how records are refreshed once they expire
+   *
+   * @param refreshMode the new refresh mode
+   */
+  public final void refreshMode(RefreshMode refreshMode) {
+    this.refreshMode = refreshMode;
+  }
+
   @Override
   public final long ttl() {
     return ttl;
@@ -2,6 +2,7 @@ package ca.on.oicr.gsi.shesmu.plugin.cache;
 
 import ca.on.oicr.gsi.Pair;
 import ca.on.oicr.gsi.prometheus.LatencyHistogram;
+import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 import java.lang.ref.SoftReference;
@@ -59,6 +60,12 @@ public abstract class LabelledKeyValueCache<K, L, V>
       Gauge.build("shesmu_cache_lkv_item_count", "Number of items in a cache.")
           .labelNames("name")
           .register();
+  private static final Counter evictions =
+      Counter.build(
+              "shesmu_cache_lkv_evictions",
+              "The number of items removed from a cache because it was full.")
+          .labelNames("name")
+          .register();
   private static final Histogram fetchCpuTime =
       Histogram.build()
           .buckets(1.0, 5.0, 10.0, 30.0, 60.0, 300.0, 600.0, 3600.0)
@@ -75,6 +82,18 @@ public abstract class LabelledKeyValueCache<K, L, V>
       Gauge.build("shesmu_cache_lkv_max_inner_count", "The largest collection stored in a cache.")
           .labelNames("name")
           .register();
+  private static final Gauge maxEntriesValue =
+      Gauge.build(
+              "shesmu_cache_lkv_max_entries",
+              "The maximum number of items allowed in a cache or 0 if unlimited.")
+          .labelNames("name")
+          .register();
+  private static final Gauge retainedBytes =
+      Gauge.build(
+              "shesmu_cache_lkv_retained_bytes",
+              "The estimated number of bytes used by the items in a cache.")
+          .labelNames("name")
+          .register();
   private static final Gauge ttlValue =
       Gauge.build("shesmu_cache_lkv_ttl", "The time-to-live of a cache, in minutes.")
           .labelNames("name")
@@ -89,7 +108,8 @@ public abstract class LabelledKeyValueCache<K, L, V>
   private final String name;
 
   private final RecordFactory<V> recordCtor;
-  private final Map<L, Record<V>> records = new ConcurrentHashMap<>();
+  private final RecordMap<L, V> records;
+  private volatile RefreshMode refreshMode = RefreshMode.SYNCHRONOUS;
   private int ttl;
 
   /**
@@ -103,6 +123,7 @@ public abstract class LabelledKeyValueCache<K, L, V>
     this.name = name;
     this.ttl = ttl;
     this.recordCtor = recordCtor;
+    records = new RecordMap<>(evictions.labels(name), retainedBytes.labels(name));
     ttlValue.labels(name).set(ttl);
     // WARNING: Passing "this" outside constructor means that objects are
     // accessible before completely constructed
@@ -128,7 +149,7 @@ public abstract class LabelledKeyValueCache<K, L, V>
    */
   public final V get(K key) {
     final var record =
-        records.computeIfAbsent(
+        records.get(
             label(key), label -> recordCtor.create(new LabelledKeyValueUpdater(key, label)));
     maxCount = Math.max(maxCount, record.collectionSize());
     innerCount.labels(name).set(maxCount);
@@ -143,13 +164,13 @@ public abstract class LabelledKeyValueCache<K, L, V>
    */
   public final V getStale(K key) {
     final var record =
-        records.computeIfAbsent(
+        records.get(
             label(key), label -> recordCtor.create(new LabelledKeyValueUpdater(key, label)));
     return record.readStale();
   }
 
   public final void invalidate(K key) {
-    final var record = records.get(label(key));
+    final var record = records.getIfPresent(label(key));
     if (record != null) {
       record.invalidate();
     }
@@ -162,17 +183,58 @@ public abstract class LabelledKeyValueCache<K, L, V>
   }
 
   public final Iterator<Map.Entry<L, Record<V>>> iterator() {
-    return records.entrySet().iterator();
+    return records.iterator();
   }
 
   /** The the fixed label associated with the specified key */
   protected abstract L label(K key);
 
+  /** The number of items that have been removed from this cache because it was full */
+  public final long evictions() {
+    return records.evictions();
+  }
+
+  /** The maximum number of items allowed in this cache, or 0 if unlimited */
+  public final int maxEntries() {
+    return records.maxEntries();
+  }
+
+  /**
+   * Limit the number of items stored in this cache
+   *
+   * <p>If the cache has more items, the least recently used items will be discarded.
+   *
+   * @param maxEntries the maximum number of items, or 0 to not limit the number of items
+   */
+  public final void maxEntries(int maxEntries) {
+    records.maxEntries(maxEntries);
+    maxEntriesValue.labels(name).set(records.maxEntries());
+  }
+
   @Override
   public final String name() {
     return name;
   }
 
+  /** The estimated number of bytes used by the items in this cache */
+  public final long retainedBytes() {
+    return records.retainedBytes();
+  }
+
+  @Override
+  public final RefreshMode refreshMode() {
+    return refreshMode;
+  }
+
+  /**
+   * Change how records are refreshed once they expire
+   *
+   * @param refreshMode the new refresh mode
+   */
+  public final void refreshMode(RefreshMode refreshMode) {
+    this.refreshMode = refreshMode;
+  }
+
   @Override
   public final long ttl() {
     return ttl;
@@ -20,6 +20,11 @@ public interface Owner {
   /** The name of the cache for use in monitoring */
   String name();
 
+  /** How records should be refreshed once they expire */
+  default RefreshMode refreshMode() {
+    return RefreshMode.SYNCHRONOUS;
+  }
+
   /** The time-to-live for a record in cache */
   long ttl();
 }
@@ -29,6 +29,12 @@ public interface Record<V> {
           "shesmu_cache_refresh_latency",
           "Attempted to refresh a value stored in cache, but the refresh failed.",
           "name");
+  Counter staleServed =
+      Counter.build(
+              "shesmu_cache_stale_served",
+              "The number of times an expired value was served from cache while a refresh was pending.")
+          .labelNames("name")
+          .register();
   Counter staleRefreshError =
       Counter.build(
               "shesmu_cache_refresh_error",
@@ -0,0 +1,230 @@
+package ca.on.oicr.gsi.shesmu.plugin.cache;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * The records stored by a key-value cache, with optional least-recently-used eviction
+ *
+ * <p>The size of the records is estimated from the number of items in each record. This is crude,
+ * but cheap to compute and good enough to find which caches are growing.
+ *
+ * <p>Records are looked up without locking. When the number of records is limited, the order in
+ * which they were used is tracked in an access-ordered map, so finding the least recently used
+ * record takes constant time. That map needs a lock, so uses are first added to a lock-free buffer
+ * and only moved into the map by whichever thread can take the lock without waiting or by the
+ * thread doing an eviction. If the buffer is full, uses of existing records are dropped, so the
+ * order is approximate under heavy load; new records are always added.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values stored in the records
+ */
+final class RecordMap<K, V> implements Iterable<Map.Entry<K, Record<V>>> {
+  private static final class Entry<V> {
+    private final Record<V> record;
+    private final AtomicLong weight = new AtomicLong();
+
+    private Entry(Record<V> record) {
+      this.record = record;
+    }
+  }
+
+  /** The number of buffered uses that will trigger moving them into the recency map */
+  private static final int DRAIN_THRESHOLD = 64;
+  /** The approximate number of bytes used by one item in a record */
+  private static final long ITEM_BYTES = 64;
+  /** The maximum number of buffered uses of existing records */
+  private static final int MAX_PENDING_USES = 4096;
+  /** The approximate number of bytes used by a record and its key */
+  private static final long RECORD_BYTES = 256;
+
+  private static long weigh(Record<?> record) {
+    return RECORD_BYTES + ITEM_BYTES * Math.max(0, record.collectionSize());
+  }
+
+  private final Counter.Child evictionCount;
+  private final AtomicLong evictions = new AtomicLong();
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile int maxEntries;
+  private final AtomicInteger pendingUses = new AtomicInteger();
+  private final Map<K, Entry<V>> records = new ConcurrentHashMap<>();
+  /**
+   * The records in order from least to most recently used; only maintained while the number of
+   * records is limited and guarded by {@link #lock}
+   */
+  private final LinkedHashMap<K, Entry<V>> recency = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final Gauge.Child retainedBytes;
+  private final AtomicLong totalWeight = new AtomicLong();
+  /** Records that have been used, but not yet moved in the recency map */
+  private final Queue<K> uses = new ConcurrentLinkedQueue<>();
+
+  RecordMap(Counter.Child evictionCount, Gauge.Child retainedBytes) {
+    this.evictionCount = evictionCount;
+    this.retainedBytes = retainedBytes;
+  }
+
+  /** Move buffered uses into the recency map; the lock must be held */
+  private void drain() {
+    for (K key; (key = uses.poll()) != null; ) {
+      pendingUses.decrementAndGet();
+      // Use whatever is in the map now, in case this record was evicted since it was used
+      final var current = records.get(key);
+      if (maxEntries > 0 && current != null) {
+        recency.put(key, current);
+      }
+    }
+  }
+
+  /** Remove the least recently used records until the cache is within its limit */
+  private void evict() {
+    lock.lock();
+    try {
+      drain();
+      final var limit = maxEntries;
+      if (limit < 1) {
+        return;
+      }
+      final var iterator = recency.entrySet().iterator();
+      while (records.size() > limit && iterator.hasNext()) {
+        final var victim = iterator.next();
+        iterator.remove();
+        if (records.remove(victim.getKey(), victim.getValue())) {
+          evictions.incrementAndGet();
+          evictionCount.inc();
+          unweigh(victim.getValue());
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The number of records that have been evicted */
+  public long evictions() {
+    return evictions.get();
+  }
+
+  /**
+   * Get a record, creating it if it does not exist
+   *
+   * @param key the key of the record
+   * @param create a function to create the record if it is not present
+   */
+  public Record<V> get(K key, Function<? super K, ? extends Record<V>> create) {
+    final var created = new boolean[1];
+    final var entry =
+        records.computeIfAbsent(
+            key,
+            k -> {
+              created[0] = true;
+              return new Entry<>(create.apply(k));
+            });
+    // The weight is updated when the record is used, so it lags one refresh behind
+    final var weight = weigh(entry.record);
+    final var oldWeight = entry.weight.getAndSet(weight);
+    if (weight != oldWeight) {
+      retainedBytes.set(totalWeight.addAndGet(weight - oldWeight));
+    }
+    if (maxEntries > 0) {
+      // A new record must always reach the recency map or it could never be evicted
+      if (created[0] || pendingUses.get() < MAX_PENDING_USES) {
+        pendingUses.incrementAndGet();
+        uses.add(key);
+      }
+      if (records.size() > maxEntries) {
+        evict();
+      } else if (pendingUses.get() >= DRAIN_THRESHOLD && lock.tryLock()) {
+        try {
+          drain();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+    if (records.get(key) != entry) {
+      // The record was evicted while being weighed, so take back its weight
+      unweigh(entry);
+    }
+    return entry.record;
+  }
+
+  /**
+   * Get a record, if it exists
+   *
+   * <p>This does not count as a use of the record for eviction.
+   *
+   * @param key the key of the record
+   * @return the record or null if it is not present
+   */
+  public Record<V> getIfPresent(K key) {
+    final var entry = records.get(key);
+    return entry == null ? null : entry.record;
+  }
+
+  @Override
+  public Iterator<Map.Entry<K, Record<V>>> iterator() {
+    return records.entrySet().stream()
+        .map(e -> Map.entry(e.getKey(), e.getValue().record))
+        .iterator();
+  }
+
+  /** The maximum number of records allowed, or 0 if unlimited */
+  public int maxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Change the maximum number of records allowed
+   *
+   * @param maxEntries the maximum number of records, or 0 to not limit the number of records
+   */
+  public void maxEntries(int maxEntries) {
+    lock.lock();
+    try {
+      if (maxEntries < 1) {
+        recency.clear();
+      } else if (this.maxEntries < 1) {
+        // Usage wasn't tracked while there was no limit, so start with an arbitrary order
+        recency.putAll(records);
+      }
+      this.maxEntries = Math.max(0, maxEntries);
+    } finally {
+      lock.unlock();
+    }
+    evict();
+  }
+
+  /** The estimated number of bytes used by all the records */
+  public long retainedBytes() {
+    return totalWeight.get();
+  }
+
+  private void unweigh(Entry<V> entry) {
+    final var weight = entry.weight.getAndSet(0);
+    if (weight != 0) {
+      retainedBytes.set(totalWeight.addAndGet(-weight));
+    }
+  }
+
+  /** The number of records stored */
+  public int size() {
+    return records.size();
+  }
+
+  /** All the records stored */
+  public Stream<Record<V>> values() {
+    return records.values().stream().map(e -> e.record);
+  }
+}
@@ -0,0 +1,71 @@
+package ca.on.oicr.gsi.shesmu.plugin.cache;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The shared pool that performs background refreshes for records that are not refreshed
+ * synchronously
+ *
+ * <p>The queue is bounded; if it is full, the refresh is not done and the record will try again the
+ * next time it is used.
+ */
+final class RefreshExecutor {
+  private static final int QUEUE_DEPTH = 1024;
+  private static final AtomicInteger THREAD_ID = new AtomicInteger();
+  private static final ThreadPoolExecutor EXECUTOR =
+      new ThreadPoolExecutor(
+          Math.max(2, Runtime.getRuntime().availableProcessors()),
+          Math.max(2, Runtime.getRuntime().availableProcessors()),
+          1,
+          TimeUnit.MINUTES,
+          new ArrayBlockingQueue<>(QUEUE_DEPTH),
+          runnable -> {
+            final var thread =
+                new Thread(runnable, "cache-refresh-" + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+  private static final Gauge queueDepth =
+      Gauge.build(
+              "shesmu_cache_refresh_queue_depth",
+              "The number of background cache refreshes waiting to start.")
+          .register();
+  private static final Counter rejected =
+      Counter.build(
+              "shesmu_cache_refresh_rejected",
+              "The number of background cache refreshes that could not be queued because the queue was full.")
+          .register();
+
+  static {
+    EXECUTOR.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Start a refresh in the background
+   *
+   * @param task the refresh to perform
+   * @return true if the refresh was queued; false if the queue is full
+   */
+  public static boolean submit(Runnable task) {
+    try {
+      EXECUTOR.execute(
+          () -> {
+            queueDepth.set(EXECUTOR.getQueue().size());
+            task.run();
+          });
+      queueDepth.set(EXECUTOR.getQueue().size());
+      return true;
+    } catch (RejectedExecutionException e) {
+      rejected.inc();
+      return false;
+    }
+  }
+
+  private RefreshExecutor() {}
+}
@@ -0,0 +1,27 @@
+package ca.on.oicr.gsi.shesmu.plugin.cache;
+
+/** How a cache record should be refreshed once it has expired */
+public enum RefreshMode {
+  /**
+   * The caller that finds an expired record fetches the new value and waits for it
+   *
+   * <p>Other callers are served the stale value while the fetch is in progress.
+   */
+  SYNCHRONOUS,
+  /**
+   * The caller that finds an expired record is served the stale value and the new value is fetched
+   * in the background
+   *
+   * <p>The first fetch and fetches after the record is invalidated are still done synchronously,
+   * since there is no value to serve.
+   */
+  STALE_WHILE_REVALIDATE,
+  /**
+   * Like {@link #STALE_WHILE_REVALIDATE}, but the background fetch is started slightly before the
+   * record expires
+   *
+   * <p>The amount of time is chosen at random, up to a tenth of the time-to-live, so that records
+   * fetched at the same time do not all refresh at the same time.
+   */
+  PROACTIVE
+}
@@ -44,6 +44,7 @@ public abstract class ValueCache<S> implements Owner {
 
   private final String name;
 
+  private volatile RefreshMode refreshMode = RefreshMode.SYNCHRONOUS;
   private int ttl;
 
   private final Record<S> value;
@@ -133,6 +134,20 @@ public abstract class ValueCache<S> implements Owner {
     return name;
   }
 
+  @Override
+  public final RefreshMode refreshMode() {
+    return refreshMode;
+  }
+
+  /**
+   * Change how records are refreshed once they expire
+   *
+   * @param refreshMode the new refresh mode
+   */
+  public final void refreshMode(RefreshMode refreshMode) {
+    this.refreshMode = refreshMode;
+  }
+
   @Override
   public final long ttl() {
     return ttl;
@@ -0,0 +1,106 @@
+package ca.on.oicr.gsi.shesmu.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RequestBatcherTest {
+
+  @Test
+  public void testConcurrent() throws InterruptedException {
+    final var batches = new AtomicInteger();
+    final var largest = new AtomicInteger();
+    final var release = new CountDownLatch(1);
+    final var batcher =
+        new RequestBatcher<Integer, Integer>(
+            10,
+            1,
+            batch -> {
+              batches.incrementAndGet();
+              largest.accumulateAndGet(batch.size(), Math::max);
+              // Hold the first batch so the other requests pile up behind it
+              release.await();
+              for (final var request : batch) {
+                request.complete(request.input() * 2);
+              }
+            });
+    final var failures = new AtomicInteger();
+    final List<Thread> threads = new ArrayList<>();
+    for (var i = 0; i < 25; i++) {
+      final var input = i;
+      final var thread =
+          new Thread(
+              () -> {
+                try {
+                  if (batcher.apply(input) != input * 2) {
+                    failures.incrementAndGet();
+                  }
+                } catch (ExecutionException | InterruptedException e) {
+                  failures.incrementAndGet();
+                }
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    Thread.sleep(200);
+    release.countDown();
+    for (final var thread : threads) {
+      thread.join();
+    }
+    Assertions.assertEquals(0, failures.get(), "Request got the wrong result");
+    Assertions.assertTrue(largest.get() <= 10, "Batch exceeded limit");
+    Assertions.assertTrue(batches.get() < 25, "Concurrent requests were not batched");
+  }
+
+  @Test
+  public void testFailure() throws InterruptedException {
+    final var batcher =
+        new RequestBatcher<Integer, Integer>(
+            10,
+            1,
+            batch -> {
+              throw new IllegalArgumentException("Bad batch");
+            });
+    final var e = Assertions.assertThrows(ExecutionException.class, () -> batcher.apply(1));
+    Assertions.assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+  }
+
+  @Test
+  public void testIncomplete() throws InterruptedException {
+    final var batcher =
+        new RequestBatcher<Integer, Integer>(
+            10,
+            1,
+            batch -> {
+              if (batch.get(0).input() == 1) {
+                batch.get(0).fail(new IllegalArgumentException("Bad request"));
+              }
+            });
+    final var failed = Assertions.assertThrows(ExecutionException.class, () -> batcher.apply(1));
+    Assertions.assertEquals(IllegalArgumentException.class, failed.getCause().getClass());
+    final var dropped = Assertions.assertThrows(ExecutionException.class, () -> batcher.apply(2));
+    Assertions.assertEquals(IllegalStateException.class, dropped.getCause().getClass());
+  }
+
+  @Test
+  public void testSingle() throws ExecutionException, InterruptedException {
+    final var sizes = new ArrayList<Integer>();
+    final var batcher =
+        new RequestBatcher<String, Integer>(
+            10,
+            1,
+            batch -> {
+              sizes.add(batch.size());
+              for (final var request : batch) {
+                request.complete(request.input().length());
+              }
+            });
+    Assertions.assertEquals(3, (int) batcher.apply("abc"));
+    Assertions.assertEquals(5, (int) batcher.apply("hello"));
+    Assertions.assertEquals(List.of(1, 1), sizes);
+  }
+}
@@ -0,0 +1,134 @@
+package ca.on.oicr.gsi.shesmu.plugin.cache;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.time.Instant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RecordMapTest {
+  private static final class FixedRecord implements Record<String> {
+    private final int size;
+
+    private FixedRecord(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public int collectionSize() {
+      return size;
+    }
+
+    @Override
+    public void invalidate() {}
+
+    @Override
+    public Instant lastUpdate() {
+      return Instant.EPOCH;
+    }
+
+    @Override
+    public String readStale() {
+      return "";
+    }
+
+    @Override
+    public String refresh(String context) {
+      return "";
+    }
+
+    @Override
+    public Updater<?> updater() {
+      return null;
+    }
+  }
+
+  private static RecordMap<String, String> create() {
+    return new RecordMap<>(
+        Counter.build("test_evictions", "Test evictions.").labelNames("name").create().labels("x"),
+        Gauge.build("test_retained", "Test retained bytes.").labelNames("name").create().labels("x"));
+  }
+
+  private static void use(RecordMap<String, String> map, String key, int size) {
+    map.get(key, k -> new FixedRecord(size));
+  }
+
+  @Test
+  public void testEvictionOrder() {
+    final var map = create();
+    map.maxEntries(2);
+    use(map, "a", 0);
+    use(map, "b", 0);
+    use(map, "a", 0);
+    use(map, "c", 0);
+    Assertions.assertNotNull(map.getIfPresent("a"), "Recently used record was evicted");
+    Assertions.assertNull(map.getIfPresent("b"), "Least recently used record was kept");
+    Assertions.assertNotNull(map.getIfPresent("c"), "New record was evicted");
+    // Looking up a record without using it must not change the order
+    map.getIfPresent("a");
+    use(map, "c", 0);
+    use(map, "d", 0);
+    Assertions.assertNull(map.getIfPresent("a"), "Least recently used record was kept");
+    Assertions.assertNotNull(map.getIfPresent("c"));
+    Assertions.assertNotNull(map.getIfPresent("d"));
+  }
+
+  @Test
+  public void testLimit() {
+    final var map = create();
+    map.maxEntries(3);
+    for (var i = 0; i < 100; i++) {
+      use(map, "k" + i, 0);
+      Assertions.assertTrue(map.size() <= 3, "Cache exceeded limit");
+    }
+    Assertions.assertEquals(3, map.size());
+    Assertions.assertEquals(97, map.evictions());
+    for (var i = 97; i < 100; i++) {
+      Assertions.assertNotNull(map.getIfPresent("k" + i), "Most recent record was evicted");
+    }
+  }
+
+  @Test
+  public void testLoweringLimit() {
+    final var map = create();
+    map.maxEntries(10);
+    use(map, "a", 0);
+    use(map, "b", 0);
+    use(map, "c", 0);
+    use(map, "a", 0);
+    map.maxEntries(1);
+    Assertions.assertEquals(1, map.size());
+    Assertions.assertNotNull(map.getIfPresent("a"), "Most recent record was evicted");
+  }
+
+  @Test
+  public void testUnlimited() {
+    final var map = create();
+    for (var i = 0; i < 100; i++) {
+      use(map, "k" + i, 0);
+    }
+    Assertions.assertEquals(100, map.size());
+    Assertions.assertEquals(0, map.evictions());
+    map.maxEntries(10);
+    Assertions.assertEquals(10, map.size());
+    Assertions.assertEquals(90, map.evictions());
+  }
+
+  @Test
+  public void testWeight() {
+    final var map = create();
+    map.maxEntries(1);
+    Assertions.assertEquals(0, map.retainedBytes());
+    use(map, "small", 0);
+    Assertions.assertEquals(256, map.retainedBytes());
+    use(map, "large", 10);
+    Assertions.assertNull(map.getIfPresent("small"));
+    Assertions.assertEquals(256 + 640, map.retainedBytes(), "Evicted record is still weighed");
+    use(map, "small", 0);
+    Assertions.assertNull(map.getIfPresent("large"));
+    Assertions.assertEquals(256, map.retainedBytes(), "Evicted record is still weighed");
+    map.maxEntries(0);
+    use(map, "large", 10);
+    Assertions.assertEquals(256 + 256 + 640, map.retainedBytes());
+  }
+}
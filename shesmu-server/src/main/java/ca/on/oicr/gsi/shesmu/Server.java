@@ -44,6 +44,7 @@ import ca.on.oicr.gsi.shesmu.plugin.wdl.WdlInputType;
 import ca.on.oicr.gsi.shesmu.runtime.CompiledGenerator;
 import ca.on.oicr.gsi.shesmu.runtime.OliveServices;
 import ca.on.oicr.gsi.shesmu.runtime.RuntimeSupport;
+import ca.on.oicr.gsi.shesmu.server.ActionFingerprint;
 import ca.on.oicr.gsi.shesmu.server.ActionProcessor;
 import ca.on.oicr.gsi.shesmu.server.ActionProcessor.Filter;
 import ca.on.oicr.gsi.shesmu.server.BaseHotloadingCompiler;
@@ -318,7 +319,12 @@ public final class Server implements ServerConfig, ActionServices {
     server = HttpServer.create(new InetSocketAddress(port), 0);
     server.setExecutor(wwwExecutor);
     definitionRepository = DefinitionRepository.concat(new StandardDefinitions(), pluginManager);
-    processor = new ActionProcessor(localname().resolve("/alerts"), pluginManager, this);
+    processor =
+        new ActionProcessor(
+            localname().resolve("/alerts"),
+            pluginManager,
+            this,
+            Optional.ofNullable(System.getenv("SHESMU_ACTION_JOURNAL")).map(Paths::get));
     compiler = new CompiledGenerator(executor, definitionRepository, processor::isPaused);
     staticActions = new StaticActions(processor, definitionRepository);
     guidedMeditations =
@@ -371,6 +377,18 @@ public final class Server implements ServerConfig, ActionServices {
                 return processor.accept(action, filename, line, column, hash, tags);
               }
 
+              @Override
+              public boolean accept(
+                  Action action,
+                  ActionFingerprint fingerprint,
+                  String filename,
+                  int line,
+                  int column,
+                  String hash,
+                  String[] tags) {
+                return processor.accept(action, fingerprint, filename, line, column, hash, tags);
+              }
+
               @Override
               public boolean accept(
                   String[] labels,
@@ -620,6 +638,7 @@ public final class Server implements ServerConfig, ActionServices {
                 return Stream.of(
                         pluginManager.listConfiguration(),
                         staticActions.listConfiguration(),
+                        processor.listConfiguration(),
                         guidedMeditations.stream().map(GuidedMeditation::configuration),
                         AnnotatedInputFormatDefinition.formats()
                             .flatMap(AnnotatedInputFormatDefinition::configuration),
@@ -1699,7 +1718,11 @@ public final class Server implements ServerConfig, ActionServices {
                     final var node = array.addObject();
                     node.put("name", cache.name());
                     node.put("ttl", cache.ttl());
+                    node.put("refreshMode", cache.refreshMode().name());
                     node.put("type", "kv");
+                    node.put("maxEntries", cache.maxEntries());
+                    node.put("evictions", cache.evictions());
+                    node.put("retainedBytes", cache.retainedBytes());
                     final var entries = node.putObject("entries");
                     storeEntries(entries, cache);
                   });
@@ -1709,7 +1732,11 @@ public final class Server implements ServerConfig, ActionServices {
                     final var node = array.addObject();
                     node.put("name", cache.name());
                     node.put("ttl", cache.ttl());
+                    node.put("refreshMode", cache.refreshMode().name());
                     node.put("type", "kv");
+                    node.put("maxEntries", cache.maxEntries());
+                    node.put("evictions", cache.evictions());
+                    node.put("retainedBytes", cache.retainedBytes());
                     final var entries = node.putObject("entries");
                     storeEntries(entries, cache);
                   });
@@ -1719,6 +1746,7 @@ public final class Server implements ServerConfig, ActionServices {
                     final var node = array.addObject();
                     node.put("name", cache.name());
                     node.put("ttl", cache.ttl());
+                    node.put("refreshMode", cache.refreshMode().name());
                     node.put("lastUpdate", cache.lastUpdated().toEpochMilli());
                     node.put("collectionSize", cache.collectionSize());
                     node.put("type", "v");
@@ -3134,7 +3162,7 @@ public final class Server implements ServerConfig, ActionServices {
     compiler.start(fileWatcher);
     staticActions.start(fileWatcher);
     System.out.println("Starting action processor...");
-    processor.start(executor, compiler);
+    processor.start(fileWatcher, executor, compiler);
     System.out.println("Starting scheduler...");
     master.start(executor);
     pluginManager.log("Shesmu started.", Map.of());
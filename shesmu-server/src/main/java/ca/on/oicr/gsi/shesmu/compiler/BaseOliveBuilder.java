@@ -108,6 +108,7 @@ public abstract class BaseOliveBuilder {
   private static final Type A_GAUGE_TYPE = Type.getType(Gauge.class);
   private static final Type A_GROUPER_TYPE = Type.getType(Grouper.class);
   protected static final Type A_INPUT_PROVIDER_TYPE = Type.getType(InputProvider.class);
+  private static final Type A_MAP_TYPE = Type.getType(Map.class);
   private static final Type A_OBJECTS_TYPE = Type.getType(Objects.class);
   private static final Type A_OBJECT_ARRAY_TYPE = Type.getType(Object[].class);
   protected static final Type A_OBJECT_TYPE = Type.getType(Object.class);
@@ -138,6 +139,8 @@ public abstract class BaseOliveBuilder {
   private static final Method METHOD_HASH_CODE = new Method("hashCode", INT_TYPE, new Type[] {});
   protected static final Method METHOD_INPUT_PROVIDER__FETCH =
       new Method("fetch", A_STREAM_TYPE, new Type[] {A_STRING_TYPE});
+  private static final Method METHOD_INPUT_PROVIDER__GROUP =
+      new Method("group", A_MAP_TYPE, new Type[] {A_STRING_TYPE, A_STRING_TYPE, A_FUNCTION_TYPE});
   private static final Method METHOD_LEFT_INTERSECTION_JOIN =
       new Method(
           "leftIntersectionJoin",
@@ -164,6 +167,18 @@ public abstract class BaseOliveBuilder {
             A_FUNCTION_TYPE,
             A_BICONSUMER_TYPE
           });
+  private static final Method METHOD_LEFT_JOIN_SHARED =
+      new Method(
+          "leftJoin",
+          A_STREAM_TYPE,
+          new Type[] {
+            A_STREAM_TYPE,
+            A_MAP_TYPE,
+            A_FUNCTION_TYPE,
+            A_BIFUNCTION_TYPE,
+            A_FUNCTION_TYPE,
+            A_BICONSUMER_TYPE
+          });
   private static final Method METHOD_MONITOR =
       new Method(
           "monitor", A_STREAM_TYPE, new Type[] {A_STREAM_TYPE, A_GAUGE_TYPE, A_FUNCTION_TYPE});
@@ -205,6 +220,11 @@ public abstract class BaseOliveBuilder {
           new Type[] {
             A_STREAM_TYPE, A_STREAM_TYPE, A_FUNCTION_TYPE, A_FUNCTION_TYPE, A_BIFUNCTION_TYPE
           });
+  private static final Method METHOD_RUNTIME_SUPPORT__JOIN_SHARED =
+      new Method(
+          "join",
+          A_STREAM_TYPE,
+          new Type[] {A_STREAM_TYPE, A_MAP_TYPE, A_FUNCTION_TYPE, A_BIFUNCTION_TYPE});
   private static final Method METHOD_RUNTIME_SUPPORT__JOIN_INTERSECTION =
       new Method(
           "joinIntersection",
@@ -421,6 +441,7 @@ public abstract class BaseOliveBuilder {
       boolean intersection,
       JoinInputSource innerType,
       Imyhat keyType,
+      Optional<String> sharedKey,
       LoadableValue... capturedVariables) {
     final var className =
         String.format("%s/Join %d:%d", BaseHotloadingCompiler.PACKAGE_INTERNAL, line, column);
@@ -446,11 +467,17 @@ public abstract class BaseOliveBuilder {
 
     steps.add(
         renderer -> {
-          loadInputProvider(renderer.methodGen());
-          innerType.render(renderer);
+          final var shared = sharedKey.isPresent() && !intersection;
+          if (shared) {
+            pushSharedTable(renderer, innerType, sharedKey.get(), innerKeyLambda);
+            outerKeyLambda.push(renderer);
+          } else {
+            loadInputProvider(renderer.methodGen());
+            innerType.render(renderer);
 
-          outerKeyLambda.push(renderer);
-          innerKeyLambda.push(renderer);
+            outerKeyLambda.push(renderer);
+            innerKeyLambda.push(renderer);
+          }
           LambdaBuilder.pushNew(
               renderer,
               LambdaBuilder.bifunction(newType, oldType, innerType.type()),
@@ -460,9 +487,11 @@ public abstract class BaseOliveBuilder {
               .methodGen()
               .invokeStatic(
                   A_RUNTIME_SUPPORT_TYPE,
-                  intersection
-                      ? METHOD_RUNTIME_SUPPORT__JOIN_INTERSECTION
-                      : METHOD_RUNTIME_SUPPORT__JOIN);
+                  shared
+                      ? METHOD_RUNTIME_SUPPORT__JOIN_SHARED
+                      : intersection
+                          ? METHOD_RUNTIME_SUPPORT__JOIN_INTERSECTION
+                          : METHOD_RUNTIME_SUPPORT__JOIN);
         });
 
     final var outerKeyMethodGen = outerKeyLambda.renderer(oldType, this::emitSigner);
@@ -477,6 +506,7 @@ public abstract class BaseOliveBuilder {
       boolean intersection,
       JoinInputSource innerType,
       Imyhat keyType,
+      Optional<String> sharedKey,
       BiConsumer<SignatureDefinition, Renderer> innerSigner,
       LoadableValue... capturedVariables) {
     final var joinedClassName =
@@ -519,11 +549,17 @@ public abstract class BaseOliveBuilder {
 
     steps.add(
         renderer -> {
-          loadInputProvider(renderer.methodGen());
-          innerType.render(renderer);
+          final var shared = sharedKey.isPresent() && !intersection;
+          if (shared) {
+            pushSharedTable(renderer, innerType, sharedKey.get(), innerKeyLambda);
+            outerKeyLambda.push(renderer);
+          } else {
+            loadInputProvider(renderer.methodGen());
+            innerType.render(renderer);
 
-          outerKeyLambda.push(renderer);
-          innerKeyLambda.push(renderer);
+            outerKeyLambda.push(renderer);
+            innerKeyLambda.push(renderer);
+          }
           LambdaBuilder.pushNew(
               renderer,
               LambdaBuilder.bifunction(joinedType, oldType, innerType.type()),
@@ -535,7 +571,9 @@ public abstract class BaseOliveBuilder {
               .methodGen()
               .invokeStatic(
                   A_RUNTIME_SUPPORT_TYPE,
-                  intersection ? METHOD_LEFT_INTERSECTION_JOIN : METHOD_LEFT_JOIN);
+                  shared
+                      ? METHOD_LEFT_JOIN_SHARED
+                      : intersection ? METHOD_LEFT_INTERSECTION_JOIN : METHOD_LEFT_JOIN);
 
           LambdaBuilder.pushVirtual(
               renderer,
@@ -594,6 +632,19 @@ public abstract class BaseOliveBuilder {
 
   protected abstract void loadSigner(SignatureDefinition variable, Renderer renderer);
 
+  /**
+   * Get the inner side of a join as a table that can be shared with other olives joining against
+   * the same input format using an equivalent key
+   */
+  private void pushSharedTable(
+      Renderer renderer, JoinInputSource innerType, String sharedKey, LambdaBuilder innerKeyLambda) {
+    loadInputProvider(renderer.methodGen());
+    renderer.methodGen().push(innerType.format().name());
+    renderer.methodGen().push(sharedKey);
+    innerKeyLambda.push(renderer);
+    renderer.methodGen().invokeInterface(A_INPUT_PROVIDER_TYPE, METHOD_INPUT_PROVIDER__GROUP);
+  }
+
   /** Stream of all the parameters available for capture/use in the clauses. */
   public abstract Stream<LoadableValue> loadableValues();
 
@@ -165,6 +165,7 @@ public abstract class Compiler {
               path,
               program.get().inputFormatDefinition(),
               program.get().timeout(),
+              program.get().parallel(),
               constants,
               signatures) {
             @Override
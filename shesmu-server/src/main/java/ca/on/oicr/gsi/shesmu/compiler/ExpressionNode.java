@@ -1064,6 +1064,16 @@ public abstract class ExpressionNode implements Renderable {
     return Optional.empty();
   }
 
+  /**
+   * Provides a canonical description of this expression if it only reads stream variables
+   *
+   * <p>This is used to find join keys in different olives that are equivalent, so they can share a
+   * single table.
+   */
+  public Optional<String> joinKeySignature() {
+    return Optional.empty();
+  }
+
   public final int line() {
     return line;
   }
@@ -71,6 +71,11 @@ public class ExpressionNodeObjectGet extends ExpressionNode {
     return expression.dumpColumnName().map(s -> s + "." + field);
   }
 
+  @Override
+  public Optional<String> joinKeySignature() {
+    return expression.joinKeySignature().map(s -> s + "." + field);
+  }
+
   @Override
   public void render(Renderer renderer) {
     expression.render(renderer);
@@ -4,7 +4,9 @@ import ca.on.oicr.gsi.shesmu.compiler.Target.Flavour;
 import ca.on.oicr.gsi.shesmu.plugin.Tuple;
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -40,6 +42,19 @@ public class ExpressionNodeTuple extends ExpressionNode {
     items.forEach(item -> item.collectPlugins(pluginFileNames));
   }
 
+  @Override
+  public Optional<String> joinKeySignature() {
+    final List<String> items = new ArrayList<>();
+    for (final var item : this.items) {
+      final var signature = item.joinKeySignature();
+      if (signature.isEmpty()) {
+        return Optional.empty();
+      }
+      items.add(signature.get());
+    }
+    return Optional.of("{" + String.join(", ", items) + "}");
+  }
+
   @Override
   public String renderEcma(EcmaScriptRenderer renderer) {
     return items.stream().map(e -> e.render(renderer)).collect(Collectors.joining(", ", "[", "]"));
@@ -204,6 +204,11 @@ public class ExpressionNodeTupleGet extends ExpressionNode {
     return expression.dumpColumnName().map(s -> s + "[" + index + "]");
   }
 
+  @Override
+  public Optional<String> joinKeySignature() {
+    return expression.joinKeySignature().map(s -> s + "[" + index + "]");
+  }
+
   @Override
   public String renderEcma(EcmaScriptRenderer renderer) {
     return access.render(renderer, expression.renderEcma(renderer), index);
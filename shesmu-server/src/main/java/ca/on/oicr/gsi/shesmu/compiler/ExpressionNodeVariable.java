@@ -48,6 +48,13 @@ public class ExpressionNodeVariable extends ExpressionNode {
     return Optional.of(name);
   }
 
+  @Override
+  public Optional<String> joinKeySignature() {
+    return target.flavour() == Flavour.STREAM || target.flavour() == Flavour.STREAM_SIGNABLE
+        ? Optional.of(name)
+        : Optional.empty();
+  }
+
   @Override
   public void collectFreeVariables(Set<String> names, Predicate<Flavour> predicate) {
     if (predicate.test(target.flavour())) {
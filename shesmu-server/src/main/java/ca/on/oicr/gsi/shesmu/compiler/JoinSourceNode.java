@@ -58,6 +58,12 @@ public abstract class JoinSourceNode {
     return input.dispatch(DISPATCH, output);
   }
 
+  /**
+   * Whether the records from this source are the same for every olive in a round, so tables built
+   * from them can be shared
+   */
+  public abstract boolean canShareTable();
+
   public abstract boolean canSign();
 
   public abstract void collectPlugins(Set<Path> pluginFileNames);
@@ -33,6 +33,11 @@ public class JoinSourceNodeCall extends JoinSourceNode {
     this.arguments = arguments;
   }
 
+  @Override
+  public boolean canShareTable() {
+    return false;
+  }
+
   @Override
   public boolean canSign() {
     return target.isRoot();
@@ -22,6 +22,11 @@ public final class JoinSourceNodeInput extends JoinSourceNode {
     this.format = format;
   }
 
+  @Override
+  public boolean canShareTable() {
+    return true;
+  }
+
   @Override
   public boolean canSign() {
     return true;
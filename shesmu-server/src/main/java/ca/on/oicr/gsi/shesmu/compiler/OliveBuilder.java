@@ -15,6 +15,7 @@ import java.lang.invoke.LambdaMetafactory;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.BaseStream;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.objectweb.asm.Handle;
@@ -113,6 +114,7 @@ public final class OliveBuilder extends BaseOliveBuilder {
 
   private static final Type A_ACTION_CONSUMER_TYPE = Type.getType(OliveServices.class);
   private static final Type A_ACTION_TYPE = Type.getType(Action.class);
+  private static final Type A_BASE_STREAM_TYPE = Type.getType(BaseStream.class);
   private static final Type A_REFILLER_TYPE = Type.getType(Refiller.class);
   private static final Type A_RUNTIME_EXCEPTION_TYPE = Type.getType(RuntimeException.class);
   private static final Type A_STRING_ARRAY_TYPE = Type.getType(String[].class);
@@ -143,6 +145,8 @@ public final class OliveBuilder extends BaseOliveBuilder {
   private static final Method METHOD_STREAM__CLOSE = new Method("close", VOID_TYPE, new Type[] {});
   private static final Method METHOD_STREAM__FOR_EACH =
       new Method("forEach", VOID_TYPE, new Type[] {A_CONSUMER_TYPE});
+  private static final Method METHOD_STREAM__SEQUENTIAL =
+      new Method("sequential", A_BASE_STREAM_TYPE, new Type[] {});
   private static final Method METHOD_SYSTEM__NANO_TIME =
       new Method("nanoTime", LONG_TYPE, new Type[] {});
   private final Type accessorType;
@@ -401,6 +405,10 @@ public final class OliveBuilder extends BaseOliveBuilder {
               });
           runMethod.methodGen().loadLocal(refillerLocal);
           runMethod.methodGen().swap();
+          // Refillers are plugin code that is not expected to be thread-safe, so always give them
+          // a sequential stream even if the olive is running in parallel
+          runMethod.methodGen().invokeInterface(A_STREAM_TYPE, METHOD_STREAM__SEQUENTIAL);
+          runMethod.methodGen().checkCast(A_STREAM_TYPE);
           runMethod.methodGen().invokeVirtual(A_REFILLER_TYPE, METHOD_REFILLER__CONSUME);
         });
   }
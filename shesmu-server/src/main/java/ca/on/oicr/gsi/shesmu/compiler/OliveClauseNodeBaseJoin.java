@@ -122,6 +122,7 @@ public abstract class OliveClauseNodeBaseJoin extends OliveClauseNode {
             intersection(),
             inputSource,
             outerKey.type(),
+            source.canShareTable() ? innerKey.joinKeySignature() : Optional.empty(),
             oliveBuilder
                 .loadableValues()
                 .filter(value -> freeVariables.contains(value.name()))
@@ -243,6 +243,11 @@ public abstract class OliveClauseNodeBaseLeftJoin extends OliveClauseNode {
             intersection(),
             inputSource,
             outerKey.type(),
+            source.canShareTable()
+                ? innerKey
+                    .joinKeySignature()
+                    .map(key -> variablePrefix.isEmpty() ? key : variablePrefix + " " + key)
+                : Optional.empty(),
             (signatureDefinition, renderer) ->
                 BaseOliveBuilder.renderSigner(
                     oliveBuilder.owner,
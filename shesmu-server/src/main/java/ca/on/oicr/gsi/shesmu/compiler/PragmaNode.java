@@ -2,6 +2,7 @@ package ca.on.oicr.gsi.shesmu.compiler;
 
 import ca.on.oicr.gsi.shesmu.plugin.Parser;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -30,6 +31,16 @@ public abstract class PragmaNode {
           return result;
         });
 
+    DISPATCH.addKeyword(
+        "Parallel",
+        (p, o) -> {
+          final var result = p.whitespace().symbol(";").whitespace();
+          if (result.isGood()) {
+            o.accept(new PragmaNodeParallel());
+          }
+          return result;
+        });
+
     DISPATCH.addKeyword(
         "RequiredServices",
         (input, output) -> {
@@ -140,6 +151,10 @@ public abstract class PragmaNode {
 
   public abstract Stream<ImportRewriter> imports();
 
+  public void parallel(AtomicBoolean parallel) {
+    // Do nothing.
+  }
+
   public abstract void renderAtExit(RootBuilder root);
 
   public abstract void renderGuard(RootBuilder root);
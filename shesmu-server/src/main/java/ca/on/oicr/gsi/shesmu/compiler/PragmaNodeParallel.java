@@ -0,0 +1,37 @@
+package ca.on.oicr.gsi.shesmu.compiler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class PragmaNodeParallel extends PragmaNode {
+
+  public PragmaNodeParallel() {
+    super();
+  }
+
+  @Override
+  public Stream<ImportRewriter> imports() {
+    return Stream.empty();
+  }
+
+  @Override
+  public void parallel(AtomicBoolean parallel) {
+    parallel.set(true);
+  }
+
+  @Override
+  public void renderAtExit(RootBuilder root) {
+    // Do nothing.
+  }
+
+  @Override
+  public void renderGuard(RootBuilder root) {
+    // Do nothing.
+  }
+
+  @Override
+  public void timeout(AtomicInteger timeout) {
+    // Do nothing.
+  }
+}
@@ -11,6 +11,7 @@ import ca.on.oicr.gsi.shesmu.plugin.Parser.Rule;
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -139,6 +140,12 @@ public class ProgramNode {
     return inputFormatDefinition;
   }
 
+  public boolean parallel() {
+    final var parallel = new AtomicBoolean();
+    pragmas.forEach(pragma -> pragma.parallel(parallel));
+    return parallel.get();
+  }
+
   public void processExports(ExportConsumer exportConsumer) {
     olives.forEach(olive -> olive.processExport(exportConsumer));
   }
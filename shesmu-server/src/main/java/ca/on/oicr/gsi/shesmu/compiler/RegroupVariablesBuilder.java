@@ -1497,6 +1497,7 @@ public final class RegroupVariablesBuilder implements Regrouper {
   private static final Method CTOR_DEFAULT = new Method("<init>", VOID_TYPE, new Type[] {});
   private static final Method CTOR_TUPLE =
       new Method("<init>", VOID_TYPE, new Type[] {Type.getType(Object[].class)});
+  private static final String FIELD_HASH_CODE = "hash code";
   private static final Method ITERATOR__NEXT = new Method("next", A_OBJECT_TYPE, new Type[] {});
   private static final Method METHOD_EQUALS =
       new Method("equals", BOOLEAN_TYPE, new Type[] {A_OBJECT_TYPE});
@@ -1706,6 +1707,20 @@ public final class RegroupVariablesBuilder implements Regrouper {
     for (final var element : elements) {
       index = element.buildConstructor(ctor, index);
     }
+    // The group-by fields never change after construction and every instance is hashed at least
+    // once when it is grouped, so compute the hash code once here
+    classVisitor
+        .visitField(
+            Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL,
+            FIELD_HASH_CODE,
+            INT_TYPE.getDescriptor(),
+            null,
+            null)
+        .visitEnd();
+    ctor.loadThis();
+    ctor.push(0);
+    elements.forEach(element -> element.buildHashCode(ctor));
+    ctor.putField(self, FIELD_HASH_CODE, INT_TYPE);
     ctor.visitInsn(Opcodes.RETURN);
     ctor.visitMaxs(0, 0);
     ctor.visitEnd();
@@ -1713,9 +1728,8 @@ public final class RegroupVariablesBuilder implements Regrouper {
     final var hashMethod =
         new GeneratorAdapter(Opcodes.ACC_PUBLIC, METHOD_HASH_CODE, null, null, classVisitor);
     hashMethod.visitCode();
-    hashMethod.push(0);
-    elements.forEach(element -> element.buildHashCode(hashMethod));
-
+    hashMethod.loadThis();
+    hashMethod.getField(self, FIELD_HASH_CODE, INT_TYPE);
     hashMethod.returnValue();
     hashMethod.visitMaxs(0, 0);
     hashMethod.visitEnd();
@@ -1731,6 +1745,11 @@ public final class RegroupVariablesBuilder implements Regrouper {
     equalsMethod.loadArg(0);
     equalsMethod.checkCast(self);
     equalsMethod.storeLocal(equalsOtherLocal);
+    equalsMethod.loadThis();
+    equalsMethod.getField(self, FIELD_HASH_CODE, INT_TYPE);
+    equalsMethod.loadLocal(equalsOtherLocal);
+    equalsMethod.getField(self, FIELD_HASH_CODE, INT_TYPE);
+    equalsMethod.ifICmp(GeneratorAdapter.NE, equalsFalse);
     elements.forEach(element -> element.buildEquals(equalsMethod, equalsOtherLocal, equalsFalse));
     equalsMethod.push(true);
     equalsMethod.returnValue();
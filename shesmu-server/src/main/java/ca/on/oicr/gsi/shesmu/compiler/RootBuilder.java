@@ -2,6 +2,7 @@ package ca.on.oicr.gsi.shesmu.compiler;
 
 import static ca.on.oicr.gsi.shesmu.compiler.BaseOliveBuilder.ACTION_NAME;
 import static ca.on.oicr.gsi.shesmu.compiler.BaseOliveBuilder.A_OPTIONAL_TYPE;
+import static org.objectweb.asm.Type.BOOLEAN_TYPE;
 import static org.objectweb.asm.Type.INT_TYPE;
 import static org.objectweb.asm.Type.VOID_TYPE;
 
@@ -66,6 +67,8 @@ public abstract class RootBuilder implements OwningBuilder {
       new Method("inputs", A_STREAM_TYPE, new Type[] {});
   private static final Method METHOD_ACTION_GENERATOR__LOOKUP =
       new Method("lookup", A_LOOKUP_TYPE, new Type[] {});
+  private static final Method METHOD_ACTION_GENERATOR__PARALLEL =
+      new Method("parallel", BOOLEAN_TYPE, new Type[] {});
   private static final Method METHOD_ACTION_GENERATOR__RUN =
       new Method("run", VOID_TYPE, new Type[] {A_OLIVE_SERVICES_TYPE, A_INPUT_PROVIDER_TYPE});
   private static final Method METHOD_ACTION_GENERATOR__RUN_PREPARE =
@@ -179,6 +182,7 @@ public abstract class RootBuilder implements OwningBuilder {
       String path,
       InputFormatDefinition inputFormatDefinition,
       int timeout,
+      boolean parallel,
       Supplier<Stream<ConstantDefinition>> constants,
       Supplier<Stream<SignatureDefinition>> signatures) {
     this.signatures = signatures;
@@ -233,6 +237,14 @@ public abstract class RootBuilder implements OwningBuilder {
     timeoutMethod.returnValue();
     timeoutMethod.visitMaxs(0, 0);
     timeoutMethod.visitEnd();
+    final var parallelMethod =
+        new GeneratorAdapter(
+            Opcodes.ACC_PUBLIC, METHOD_ACTION_GENERATOR__PARALLEL, null, null, classVisitor);
+    parallelMethod.visitCode();
+    parallelMethod.push(parallel);
+    parallelMethod.returnValue();
+    parallelMethod.visitMaxs(0, 0);
+    parallelMethod.visitEnd();
     final var lookupMethod =
         new GeneratorAdapter(
             Opcodes.ACC_PUBLIC, METHOD_ACTION_GENERATOR__LOOKUP, null, null, classVisitor);
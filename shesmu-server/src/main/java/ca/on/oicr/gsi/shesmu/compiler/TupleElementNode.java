@@ -3,6 +3,7 @@ package ca.on.oicr.gsi.shesmu.compiler;
 import ca.on.oicr.gsi.shesmu.plugin.Parser;
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
 import java.nio.file.Path;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
@@ -46,6 +47,11 @@ public abstract class TupleElementNode {
     expression.collectPlugins(pluginFileNames);
   }
 
+  /** Provides a canonical description of this element if it only reads stream variables */
+  public Optional<String> joinKeySignature() {
+    return Optional.empty();
+  }
+
   public abstract int render(Renderer renderer, int start);
 
   public abstract String render(EcmaScriptRenderer renderer);
@@ -3,6 +3,7 @@ package ca.on.oicr.gsi.shesmu.compiler;
 import static ca.on.oicr.gsi.shesmu.compiler.TypeUtils.TO_ASM;
 
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.objectweb.asm.Type;
@@ -14,6 +15,11 @@ public class TupleElementNodeSingle extends TupleElementNode {
     super(expression);
   }
 
+  @Override
+  public Optional<String> joinKeySignature() {
+    return expression.joinKeySignature();
+  }
+
   @Override
   public int render(Renderer renderer, int start) {
     renderer.methodGen().dup();
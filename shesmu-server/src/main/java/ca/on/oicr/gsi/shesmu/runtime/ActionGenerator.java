@@ -35,6 +35,11 @@ public abstract class ActionGenerator implements RequiredServices {
           return MethodHandles.publicLookup();
         }
 
+        @Override
+        public boolean parallel() {
+          return false;
+        }
+
         @Override
         public void run(OliveServices consumer, InputProvider input) {
           // Do nothing.
@@ -80,6 +85,16 @@ public abstract class ActionGenerator implements RequiredServices {
    */
   public abstract Lookup lookup();
 
+  /**
+   * Whether the olives in this program may process their input using parallel streams.
+   *
+   * <p>If true, the input streams provided to {@link #run(OliveServices, InputProvider)} may be
+   * parallel and the {@link OliveServices} must be safe to call from multiple threads.
+   *
+   * @return true if the “Parallel” pragma was used
+   */
+  public abstract boolean parallel();
+
   /**
    * Add all Prometheus monitoring for this program.
    *
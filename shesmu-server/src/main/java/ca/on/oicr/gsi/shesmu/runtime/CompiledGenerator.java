@@ -24,6 +24,7 @@ import ca.on.oicr.gsi.shesmu.plugin.files.FileWatcher;
 import ca.on.oicr.gsi.shesmu.plugin.files.WatchedFileListener;
 import ca.on.oicr.gsi.shesmu.plugin.functions.FunctionParameter;
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
+import ca.on.oicr.gsi.shesmu.server.BlockingExecutor;
 import ca.on.oicr.gsi.shesmu.server.HotloadingCompiler;
 import ca.on.oicr.gsi.shesmu.server.ImportVerifier;
 import ca.on.oicr.gsi.shesmu.server.InputSource;
@@ -46,6 +47,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -565,7 +567,29 @@ public class CompiledGenerator implements DefinitionRepository, Predicate<Source
       }
       try (final var monitoredConsumer =
           new MonitoredOliveServices(consumer, fileName.toString())) {
-        generator.run(monitoredConsumer, input);
+        if (generator.parallel()) {
+          // Parallel streams run in the fork-join pool of the thread that starts them, so run the
+          // whole script in our pool to keep the olives out of the common pool
+          final var parallelGenerator = generator;
+          final var parallelInput =
+              new InputProvider() {
+                @Override
+                public Stream<Object> fetch(String format) {
+                  return input.fetch(format).parallel();
+                }
+
+                @Override
+                public <K> Map<K, List<Object>> group(
+                    String format, String key, Function<Object, K> makeKey) {
+                  return input.group(format, key, makeKey);
+                }
+              };
+          parallelExecutor
+              .submit(() -> parallelGenerator.run(monitoredConsumer, parallelInput))
+              .join();
+        } else {
+          generator.run(monitoredConsumer, input);
+        }
         return "Completed normally";
       } catch (final Throwable e) {
         e.printStackTrace();
@@ -769,6 +793,12 @@ public class CompiledGenerator implements DefinitionRepository, Predicate<Source
       Gauge.build("shesmu_input_records", "The number of records for each input format.")
           .labelNames("format")
           .register();
+  public static final Gauge INPUT_SNAPSHOT_BYTES =
+      Gauge.build(
+              "shesmu_input_snapshot_bytes",
+              "The estimated number of bytes used to hold the shared snapshot of each input format.")
+          .labelNames("format")
+          .register();
   public static final Gauge OLIVE_WATCHDOG =
       Gauge.build(
               "shesmu_run_overtime",
@@ -902,11 +932,17 @@ public class CompiledGenerator implements DefinitionRepository, Predicate<Source
   private final Predicate<String> checkPaused;
   private final DefinitionRepository definitionRepository;
   private final ScheduledExecutorService executor;
+  private final ForkJoinPool parallelExecutor =
+      new ForkJoinPool(
+          Runtime.getRuntime().availableProcessors(),
+          new ShesmuThreadFactory("olive-parallel", Thread.MIN_PRIORITY),
+          ShesmuThreadFactory::unhandledException,
+          false);
   private Optional<AutoUpdatingDirectory<Script>> scripts = Optional.empty();
+  private final Map<String, InputSnapshot> snapshots = new ConcurrentHashMap<>();
   private final ExecutorService workExecutor =
-      Executors.newFixedThreadPool(
-          Runtime.getRuntime().availableProcessors() / 2 + 1,
-          new ShesmuThreadFactory("olive", Thread.MIN_PRIORITY));
+      BlockingExecutor.create(
+          "olive", Thread.MIN_PRIORITY, Runtime.getRuntime().availableProcessors() / 2 + 1, false);
 
   public CompiledGenerator(
       ScheduledExecutorService executor,
@@ -973,9 +1009,15 @@ public class CompiledGenerator implements DefinitionRepository, Predicate<Source
             .filter(s -> s.running.isDone())
             .flatMap(s -> s.generator.inputs())
             .collect(Collectors.toSet());
+    // Drop snapshots for formats no olive uses anymore; the snapshots for the formats that are
+    // still in use are kept so that they can be shared with the next round if the data hasn't
+    // changed
+    final var allFormats =
+        scripts().flatMap(s -> s.generator.inputs()).collect(Collectors.toSet());
+    snapshots.keySet().removeIf(format -> !allFormats.contains(format));
     final var cache =
         new InputProvider() {
-          final Map<String, List<Object>> data =
+          final Map<String, InputSnapshot> data =
               SOURCES
                   .all()
                   .filter(
@@ -993,9 +1035,16 @@ public class CompiledGenerator implements DefinitionRepository, Predicate<Source
                               return Stream.empty();
                             }
                           }
-                          final var listResults = results.toList();
-                          INPUT_RECORDS.labels(format.name()).set(listResults.size());
-                          return Stream.of(new Pair<>(format.name(), listResults));
+                          final var snapshot =
+                              snapshots.compute(
+                                  format.name(),
+                                  (name, previous) ->
+                                      InputSnapshot.update(
+                                          previous == null ? InputSnapshot.EMPTY : previous,
+                                          results));
+                          INPUT_RECORDS.labels(format.name()).set(snapshot.size());
+                          INPUT_SNAPSHOT_BYTES.labels(format.name()).set(snapshot.heapBytes());
+                          return Stream.of(new Pair<>(format.name(), snapshot));
                         } catch (final Exception e) {
                           e.printStackTrace();
                           // If we failed to load this format, pretend like it was inhibited and
@@ -1005,13 +1054,21 @@ public class CompiledGenerator implements DefinitionRepository, Predicate<Source
                       })
                   .collect(Collectors.toMap(Pair::first, Pair::second));
 
+          final JoinTables tables = new JoinTables();
+
           public boolean isReady(String format) {
             return data.containsKey(format);
           }
 
           @Override
           public Stream<Object> fetch(String format) {
-            return data.getOrDefault(format, List.of()).stream();
+            return data.getOrDefault(format, InputSnapshot.EMPTY).stream();
+          }
+
+          @Override
+          public <K> Map<K, List<Object>> group(
+              String format, String key, Function<Object, K> makeKey) {
+            return tables.get(format, key, () -> fetch(format), makeKey);
           }
         };
 
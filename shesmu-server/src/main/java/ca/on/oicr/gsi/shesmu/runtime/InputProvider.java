@@ -1,7 +1,28 @@
 package ca.on.oicr.gsi.shesmu.runtime;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public interface InputProvider {
   Stream<Object> fetch(String format);
+
+  /**
+   * Get the records of an input format grouped by a key
+   *
+   * <p>Providers may share the table between all olives that use the same key
+   *
+   * @param format the name of the input format
+   * @param key a canonical description of the key; any two key functions with the same description
+   *     for the same input format produce the same key
+   * @param makeKey the function to compute the key for a record
+   */
+  default <K> Map<K, List<Object>> group(
+      String format, String key, Function<Object, K> makeKey) {
+    try (final var records = fetch(format)) {
+      return records.sequential().collect(Collectors.groupingBy(makeKey));
+    }
+  }
 }
@@ -0,0 +1,117 @@
+package ca.on.oicr.gsi.shesmu.runtime;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+/**
+ * An immutable copy of all the records for an input format that can be shared by every olive
+ *
+ * <p>The records are stored in fixed-size chunks of references. When a new snapshot is created from
+ * a stream that produces the same record objects as the previous snapshot (<em>i.e.</em>, the
+ * cache behind the input format has not been refreshed), the chunks from the previous snapshot are
+ * reused rather than copied. If every chunk is unchanged, the previous snapshot itself is returned,
+ * so the data for an input format is only replaced when the source's data actually changes.
+ */
+public final class InputSnapshot extends AbstractList<Object> implements RandomAccess {
+  private static final long ARRAY_HEADER_BYTES = 16;
+  private static final int CHUNK_SIZE = 8192;
+  public static final InputSnapshot EMPTY = new InputSnapshot(new Object[0][], 0);
+  private static final long REFERENCE_BYTES = 4;
+
+  private static long arrayBytes(int length) {
+    // Round up to the 8-byte object alignment used by the JVM
+    return (ARRAY_HEADER_BYTES + REFERENCE_BYTES * length + 7) & ~7L;
+  }
+
+  /**
+   * Create a snapshot from the records provided, sharing as much storage with a previous snapshot as
+   * possible
+   *
+   * @param previous the last snapshot taken for this input format
+   * @param input the current records for the input format
+   * @return a snapshot containing the current records; this will be the previous snapshot if none
+   *     of the records have changed
+   */
+  public static InputSnapshot update(InputSnapshot previous, Stream<Object> input) {
+    final List<Object[]> chunks = new ArrayList<>();
+    var buffer = new Object[CHUNK_SIZE];
+    var bufferSize = 0;
+    var size = 0;
+    // Whether every record in the chunk currently being filled is the same object as in the
+    // previous snapshot; it is only possible to share a chunk if all of its records are the same
+    var chunkMatches = true;
+    var allShared = true;
+    final var iterator = input.iterator();
+    while (iterator.hasNext()) {
+      final var item = iterator.next();
+      chunkMatches &= size < previous.size && previous.get(size) == item;
+      buffer[bufferSize++] = item;
+      size++;
+      if (bufferSize == CHUNK_SIZE) {
+        if (chunkMatches) {
+          // Reuse the old chunk and recycle our buffer for the next chunk
+          chunks.add(previous.chunks[chunks.size()]);
+        } else {
+          chunks.add(buffer);
+          buffer = new Object[CHUNK_SIZE];
+          allShared = false;
+        }
+        bufferSize = 0;
+        chunkMatches = true;
+      }
+    }
+    if (bufferSize > 0) {
+      if (chunkMatches
+          && size == previous.size
+          && previous.chunks[chunks.size()].length == bufferSize) {
+        chunks.add(previous.chunks[chunks.size()]);
+      } else {
+        chunks.add(Arrays.copyOf(buffer, bufferSize));
+        allShared = false;
+      }
+    }
+    if (allShared && size == previous.size) {
+      return previous;
+    }
+    return new InputSnapshot(chunks.toArray(Object[][]::new), size);
+  }
+
+  private final Object[][] chunks;
+  private final int size;
+
+  private InputSnapshot(Object[][] chunks, int size) {
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  /**
+   * Estimate the number of bytes on the heap used to store this snapshot
+   *
+   * <p>This is only the storage used by the snapshot's tables; the records themselves are owned by
+   * the input format's cache and are not included.
+   */
+  public long heapBytes() {
+    var total = arrayBytes(chunks.length);
+    for (final var chunk : chunks) {
+      total += arrayBytes(chunk.length);
+    }
+    return total;
+  }
+
+  @Override
+  public Object get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return chunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,88 @@
+package ca.on.oicr.gsi.shesmu.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The build side of an intersection join: the records and, for each key, the positions of the
+ * records that have that key
+ *
+ * <p>Positions are stored as primitive arrays to avoid boxing an integer for every key of every
+ * record.
+ *
+ * @param <T> the type of the records
+ * @param <K> the type of the keys
+ */
+final class JoinPostings<T, K> {
+  private static final class Postings {
+    private int[] positions = new int[2];
+    private int size;
+
+    private void add(int position) {
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size * 2);
+      }
+      positions[size++] = position;
+    }
+  }
+
+  /**
+   * Index the records from a stream by all of their keys
+   *
+   * @param input the records to index; the stream will be consumed and closed
+   * @param makeKeys a function to get all the keys of a record
+   */
+  static <T, K> JoinPostings<T, K> build(Stream<T> input, Function<T, Set<K>> makeKeys) {
+    final List<T> records = new ArrayList<>();
+    try (input) {
+      input.sequential().forEachOrdered(records::add);
+    }
+    final Map<K, Postings> postings = new HashMap<>();
+    for (var i = 0; i < records.size(); i++) {
+      for (final var key : makeKeys.apply(records.get(i))) {
+        postings.computeIfAbsent(key, k -> new Postings()).add(i);
+      }
+    }
+    return new JoinPostings<>(records, postings);
+  }
+
+  private final Map<K, Postings> postings;
+  private final List<T> records;
+
+  private JoinPostings(List<T> records, Map<K, Postings> postings) {
+    this.records = records;
+    this.postings = postings;
+  }
+
+  /**
+   * Find all the records that share at least one key with the keys provided
+   *
+   * <p>Each record is only returned once, even if it matches multiple keys.
+   */
+  public Stream<T> find(Set<K> keys) {
+    final IntStream positions;
+    if (keys.size() == 1) {
+      // Positions are added in order and a record's keys are a set, so a single list of postings
+      // has no duplicates
+      final var match = postings.get(keys.iterator().next());
+      positions = match == null ? IntStream.empty() : Arrays.stream(match.positions, 0, match.size);
+    } else {
+      positions =
+          keys.stream()
+              .map(postings::get)
+              .filter(Objects::nonNull)
+              .flatMapToInt(match -> Arrays.stream(match.positions, 0, match.size))
+              .sorted()
+              .distinct();
+    }
+    return positions.mapToObj(records::get);
+  }
+}
@@ -0,0 +1,90 @@
+package ca.on.oicr.gsi.shesmu.runtime;
+
+import ca.on.oicr.gsi.Pair;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The hash tables built for the inner side of joins during one round of olive execution
+ *
+ * <p>Many olives join against the same input format using the same key. Since all olives in a round
+ * see the same snapshot of the input data, the table only needs to be built once per round and can
+ * be shared by all of them. Tables are identified by the input format and a canonical description
+ * of the key expression generated by the compiler.
+ */
+final class JoinTables {
+  private static final class Table {
+    private Map<Object, List<Object>> groups;
+
+    private synchronized Map<Object, List<Object>> get(
+        String format,
+        String key,
+        Supplier<Stream<Object>> records,
+        Function<Object, Object> makeKey) {
+      if (groups == null) {
+        missCount.labels(format).inc();
+        try (final var input = records.get()) {
+          groups = input.sequential().collect(Collectors.groupingBy(makeKey));
+        }
+        final var rows = groups.values().stream().mapToLong(List::size).sum();
+        tableBytes.labels(format, key).set(groups.size() * ENTRY_BYTES + rows * REFERENCE_BYTES);
+      } else {
+        hitCount.labels(format).inc();
+      }
+      return groups;
+    }
+  }
+
+  /** The approximate size of a hash map node, its slot in the table, and the list it points to */
+  private static final long ENTRY_BYTES = 80;
+  private static final long REFERENCE_BYTES = 4;
+  private static final Counter hitCount =
+      Counter.build(
+              "shesmu_join_table_hits",
+              "The number of times a join used a table already built by another olive in the same round.")
+          .labelNames("format")
+          .register();
+  private static final Counter missCount =
+      Counter.build(
+              "shesmu_join_table_misses",
+              "The number of times a join had to build a new table for an input format.")
+          .labelNames("format")
+          .register();
+  private static final Gauge tableBytes =
+      Gauge.build(
+              "shesmu_join_table_bytes",
+              "The estimated number of bytes used by a shared join table, excluding the keys and records.")
+          .labelNames("format", "key")
+          .register();
+
+  private final Map<Pair<String, String>, Table> tables = new ConcurrentHashMap<>();
+
+  JoinTables() {
+    // The tables from the last round are no longer in use
+    tableBytes.clear();
+  }
+
+  /**
+   * Get the records of an input format grouped by a key, building the table if no other olive has
+   *
+   * @param format the name of the input format
+   * @param key the canonical description of the key
+   * @param records the records in the input format
+   * @param makeKey the function to compute the key for a record
+   */
+  @SuppressWarnings("unchecked")
+  public <K> Map<K, List<Object>> get(
+      String format, String key, Supplier<Stream<Object>> records, Function<Object, K> makeKey) {
+    return (Map<K, List<Object>>)
+        tables
+            .computeIfAbsent(new Pair<>(format, key), k -> new Table())
+            .get(format, key, records, (Function<Object, Object>) makeKey);
+  }
+}
@@ -1,18 +1,18 @@
 package ca.on.oicr.gsi.shesmu.runtime;
 
-import ca.on.oicr.gsi.Pair;
 import ca.on.oicr.gsi.shesmu.plugin.SourceLocation;
 import ca.on.oicr.gsi.shesmu.plugin.action.Action;
 import ca.on.oicr.gsi.shesmu.plugin.dumper.Dumper;
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
+import ca.on.oicr.gsi.shesmu.server.ActionFingerprint;
 import io.prometheus.client.Gauge;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 public final class MonitoredOliveServices implements OliveServices, AutoCloseable {
@@ -20,6 +20,14 @@ public final class MonitoredOliveServices implements OliveServices, AutoCloseabl
     final List<String> annotations = new ArrayList<>();
     final Set<SourceLocation> locations = new HashSet<>();
     long ttl;
+
+    synchronized boolean add(String[] annotation, long ttl, SourceLocation location) {
+      // This is going to massively duplicate the annotations, but the action processor will
+      // de-duplicate them and resolve any conflicts
+      annotations.addAll(List.of(annotation));
+      this.ttl = Math.max(this.ttl, ttl);
+      return locations.add(location);
+    }
   }
 
   private static final Gauge actionCount =
@@ -46,23 +54,38 @@ public final class MonitoredOliveServices implements OliveServices, AutoCloseabl
               "The number of unique alerts produced during the last run of a script that were previously unknown to the scheduler.")
           .labelNames("filename")
           .register();
-  private final Map<Action, Pair<Set<String>, Set<SourceLocation>>> actions = new HashMap<>();
-  private final Map<List<String>, AlertInfo> alerts = new HashMap<>();
+  private final Set<ActionFingerprint> actions = ConcurrentHashMap.newKeySet();
+  private final Map<List<String>, AlertInfo> alerts = new ConcurrentHashMap<>();
   private final OliveServices backing;
+  private final Set<ActionFingerprint> emissions = ConcurrentHashMap.newKeySet();
   private final String filename;
+  private final LongAdder newActions = new LongAdder();
 
   public MonitoredOliveServices(OliveServices backing, String filename) {
     this.backing = backing;
     this.filename = filename;
   }
 
+  /**
+   * Pass an action on to the action processor
+   *
+   * <p>Olives emit the same action many times, so only the fingerprints of the actions are kept and
+   * each distinct combination of action, olive, and tags is forwarded immediately, the first time it
+   * is seen. This allows new actions to be scheduled while the script is still running.
+   */
   @Override
   public boolean accept(
       Action action, String filename, int line, int column, String hash, String[] tags) {
-    final var pair =
-        actions.computeIfAbsent(action, k -> new Pair<>(new TreeSet<>(), new HashSet<>()));
-    pair.first().addAll(List.of(tags));
-    return pair.second().add(new SourceLocation(filename, line, column, hash));
+    final var fingerprint = ActionFingerprint.of(action);
+    actions.add(fingerprint);
+    final var location = new SourceLocation(filename, line, column, hash);
+    if (!emissions.add(fingerprint.emittedBy(location, tags))) {
+      return false;
+    }
+    if (!backing.accept(action, fingerprint, filename, line, column, hash, tags)) {
+      newActions.increment();
+    }
+    return true;
   }
 
   @Override
@@ -74,31 +97,12 @@ public final class MonitoredOliveServices implements OliveServices, AutoCloseabl
       int line,
       int column,
       String hash) {
-    final var alert = alerts.computeIfAbsent(List.of(labels), k -> new AlertInfo());
-    // This is going to massively duplicate the annotations, but the action processor will
-    // de-duplicate them and resolve any conflicts
-    alert.annotations.addAll(List.of(annotation));
-    alert.ttl = Math.max(alert.ttl, ttl);
-    return alert.locations.add(new SourceLocation(filename, line, column, hash));
+    return alerts
+        .computeIfAbsent(List.of(labels), k -> new AlertInfo())
+        .add(annotation, ttl, new SourceLocation(filename, line, column, hash));
   }
 
   public void close() throws Exception {
-    var newActions = 0;
-    for (final var entry : actions.entrySet()) {
-      final var tags = entry.getValue().first().toArray(String[]::new);
-      for (final var location : entry.getValue().second()) {
-        if (!backing.accept(
-            entry.getKey(),
-            location.fileName(),
-            location.line(),
-            location.column(),
-            location.hash(),
-            tags)) {
-          newActions++;
-        }
-      }
-    }
-
     var newAlerts = 0;
     for (final var entry : alerts.entrySet()) {
       final var labels = entry.getKey().toArray(String[]::new);
@@ -118,14 +122,29 @@ public final class MonitoredOliveServices implements OliveServices, AutoCloseabl
     }
 
     actionCount.labels(filename).set(actions.size());
-    newActionCount.labels(filename).set(newActions);
+    newActionCount.labels(filename).set(newActions.sum());
     alertCount.labels(filename).set(alerts.size());
     newAlertCount.labels(filename).set(newAlerts);
   }
 
   @Override
   public Dumper findDumper(String name, String[] columns, Imyhat... types) {
-    return backing.findDumper(name, columns, types);
+    final var dumper = backing.findDumper(name, columns, types);
+    if (dumper == null) {
+      return null;
+    }
+    // Dumpers are not required to be thread-safe, but olives may run in parallel
+    return new Dumper() {
+      @Override
+      public synchronized void stop() {
+        dumper.stop();
+      }
+
+      @Override
+      public synchronized void write(Object... values) {
+        dumper.write(values);
+      }
+    };
   }
 
   @Override
@@ -3,11 +3,29 @@ package ca.on.oicr.gsi.shesmu.runtime;
 import ca.on.oicr.gsi.shesmu.plugin.action.Action;
 import ca.on.oicr.gsi.shesmu.plugin.dumper.Dumper;
 import ca.on.oicr.gsi.shesmu.plugin.types.Imyhat;
+import ca.on.oicr.gsi.shesmu.server.ActionFingerprint;
 import java.util.stream.Stream;
 
 public interface OliveServices {
   boolean accept(Action action, String filename, int line, int column, String hash, String[] tags);
 
+  /**
+   * Accept an action whose fingerprint has already been computed
+   *
+   * <p>Computing the fingerprint requires serialising the action, so services that pass actions
+   * along should forward the fingerprint rather than have it computed again.
+   */
+  default boolean accept(
+      Action action,
+      ActionFingerprint fingerprint,
+      String filename,
+      int line,
+      int column,
+      String hash,
+      String[] tags) {
+    return accept(action, filename, line, column, hash, tags);
+  }
+
   boolean accept(
       String[] labels,
       String[] annotation,
@@ -42,16 +42,17 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
@@ -60,8 +61,10 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.ToIntFunction;
 import java.util.regex.Pattern;
+import java.util.stream.BaseStream;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /** Utilities for making bytecode generation easier */
 public final class RuntimeSupport {
@@ -107,7 +110,8 @@ public final class RuntimeSupport {
             throw new UnsupportedOperationException();
           };
 
-  private static final Map<Pair<String, Integer>, CallSite> callsites = new HashMap<>();
+  private static final Map<Pair<String, Integer>, CallSite> callsites =
+      new ConcurrentHashMap<>();
 
   static {
     MAPPER.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
@@ -218,7 +222,8 @@ public final class RuntimeSupport {
   public static <I, O> O everything(
       Stream<I> input, BiConsumer<O, I> collect, Supplier<O> makeKey) {
     final var output = makeKey.get();
-    input.forEach(i -> collect.accept(output, i));
+    // The output is shared, so the collector must only be called from one thread at a time
+    input.forEachOrdered(i -> collect.accept(output, i));
     input.close();
     return output;
   }
@@ -240,6 +245,18 @@ public final class RuntimeSupport {
     return BaseInputFormatDefinition.bootstrap(lookup, variableName, methodType, inputFormatName);
   }
 
+  /**
+   * Join a stream of input against another input format
+   *
+   * <p>The inner records are put in a hash table and the input is streamed through it. If both
+   * sides have a known size and the input is smaller, the roles are reversed.
+   *
+   * @param input the stream to be joined against
+   * @param inner the inner input stream
+   * @param makeOuterKey create the joining key from an outer record
+   * @param makeInnerKey create the joining key from an inner record
+   * @param joiner a function to create the output type from the two types
+   */
   @RuntimeInterop
   public static <I, N, K, O> Stream<O> join(
       Stream<I> input,
@@ -247,17 +264,64 @@ public final class RuntimeSupport {
       Function<I, K> makeOuterKey,
       Function<N, K> makeInnerKey,
       BiFunction<I, N, O> joiner) {
-    final var inputGroups = input.collect(Collectors.groupingBy(makeOuterKey));
-    input.close();
-    final var innerGroups = inner.collect(Collectors.groupingBy(makeInnerKey));
+    final var parallel = input.isParallel();
+    final var outerRecords = input.spliterator();
+    final var innerRecords = inner.spliterator();
+    if (isSmaller(outerRecords, innerRecords)) {
+      final var outerGroups =
+          StreamSupport.stream(outerRecords, parallel).collect(Collectors.groupingBy(makeOuterKey));
+      input.close();
+      return StreamSupport.stream(innerRecords, parallel)
+          .onClose(inner::close)
+          .flatMap(
+              n ->
+                  outerGroups.getOrDefault(makeInnerKey.apply(n), List.of()).stream()
+                      .map(i -> joiner.apply(i, n)));
+    }
+    final var innerGroups =
+        StreamSupport.stream(innerRecords, parallel).collect(Collectors.groupingBy(makeInnerKey));
     inner.close();
-    return inputGroups.entrySet().stream()
-        .flatMap(
-            e ->
-                innerGroups.getOrDefault(e.getKey(), List.of()).stream()
-                    .flatMap(n -> e.getValue().stream().map(i -> joiner.apply(i, n))));
+    return join(
+        StreamSupport.stream(outerRecords, parallel).onClose(input::close),
+        innerGroups,
+        makeOuterKey,
+        joiner);
   }
 
+  /**
+   * Join a stream of input against a table that has already been built from the inner input format
+   *
+   * @param input the stream to be joined against
+   * @param innerGroups the inner records grouped by key
+   * @param makeOuterKey create the joining key from an outer record
+   * @param joiner a function to create the output type from the two types
+   */
+  @RuntimeInterop
+  public static <I, N, K, O> Stream<O> join(
+      Stream<I> input,
+      Map<K, List<N>> innerGroups,
+      Function<I, K> makeOuterKey,
+      BiFunction<I, N, O> joiner) {
+    return input.flatMap(
+        i ->
+            innerGroups.getOrDefault(makeOuterKey.apply(i), List.of()).stream()
+                .map(n -> joiner.apply(i, n)));
+  }
+
+  /**
+   * Join a stream of input against another input format where records match if they have any keys
+   * in common
+   *
+   * <p>Every pair of matching records is only joined once, even if they share multiple keys. As
+   * with {@link #join(Stream, Stream, Function, Function, BiFunction)}, the inner records are
+   * indexed unless the input is known to be smaller.
+   *
+   * @param input the stream to be joined against
+   * @param inner the inner input stream
+   * @param makeOuterKey create the joining keys from an outer record
+   * @param makeInnerKey create the joining keys from an inner record
+   * @param joiner a function to create the output type from the two types
+   */
   @RuntimeInterop
   public static <I, N, K, O> Stream<O> joinIntersection(
       Stream<I> input,
@@ -265,34 +329,24 @@ public final class RuntimeSupport {
       Function<I, Set<K>> makeOuterKey,
       Function<N, Set<K>> makeInnerKey,
       BiFunction<I, N, O> joiner) {
-    final var inputs = input.collect(Collectors.toList());
-    input.close();
-    final Map<K, Set<Integer>> inputGroups = new HashMap<>();
-    for (var i = 0; i < inputs.size(); i++) {
-      for (final var key : makeOuterKey.apply(inputs.get(i))) {
-        inputGroups.computeIfAbsent(key, k -> new TreeSet<>()).add(i);
-      }
+    final var parallel = input.isParallel();
+    final var outerRecords = input.spliterator();
+    final var innerRecords = inner.spliterator();
+    if (isSmaller(outerRecords, innerRecords)) {
+      final var outerPostings =
+          JoinPostings.build(
+              StreamSupport.stream(outerRecords, false).onClose(input::close), makeOuterKey);
+      return StreamSupport.stream(innerRecords, parallel)
+          .onClose(inner::close)
+          .flatMap(
+              n -> outerPostings.find(makeInnerKey.apply(n)).map(i -> joiner.apply(i, n)));
     }
-
-    final var inners = inner.collect(Collectors.toList());
-    inner.close();
-    final Map<K, Set<Integer>> innerGroups = new HashMap<>();
-    for (var i = 0; i < inners.size(); i++) {
-      for (final var key : makeInnerKey.apply(inners.get(i))) {
-        innerGroups.computeIfAbsent(key, k -> new TreeSet<>()).add(i);
-      }
-    }
-
-    final Set<Pair<Integer, Integer>> joins = new HashSet<>();
-    for (final var entry : inputGroups.entrySet()) {
-      for (final var innerId : innerGroups.getOrDefault(entry.getKey(), Set.of())) {
-        for (final var inputId : entry.getValue()) {
-          joins.add(new Pair<>(inputId, innerId));
-        }
-      }
-    }
-
-    return joins.stream().map(p -> joiner.apply(inputs.get(p.first()), inners.get(p.second())));
+    final var innerPostings =
+        JoinPostings.build(
+            StreamSupport.stream(innerRecords, false).onClose(inner::close), makeInnerKey);
+    return StreamSupport.stream(outerRecords, parallel)
+        .onClose(input::close)
+        .flatMap(i -> innerPostings.find(makeOuterKey.apply(i)).map(n -> joiner.apply(i, n)));
   }
 
   @RuntimeInterop
@@ -347,22 +401,13 @@ public final class RuntimeSupport {
       BiFunction<I, N, J> joiner,
       Function<J, O> makeOutput,
       BiConsumer<O, J> collector) {
-    final var inners = inner.collect(Collectors.toList());
-    inner.close();
-    final Map<K, Set<Integer>> innerGroups = new HashMap<>();
-    for (var i = 0; i < inners.size(); i++) {
-      for (final var key : makeInnerKey.apply(inners.get(i))) {
-        innerGroups.computeIfAbsent(key, k -> new TreeSet<>()).add(i);
-      }
-    }
+    final var innerPostings = JoinPostings.build(inner, makeInnerKey);
 
     return input.map(
         outer -> {
           final var output = makeOutput.apply(joiner.apply(outer, null));
-          makeOuterKey.apply(outer).stream()
-              .flatMap(k -> innerGroups.getOrDefault(k, Set.of()).stream())
-              .distinct()
-              .map(inners::get)
+          innerPostings
+              .find(makeOuterKey.apply(outer))
               .forEach(right -> collector.accept(output, joiner.apply(outer, right)));
           return output;
         });
@@ -390,24 +435,40 @@ public final class RuntimeSupport {
       BiFunction<I, N, J> joiner,
       Function<J, O> makeOutput,
       BiConsumer<O, J> collector) {
-    final var inputGroups = input.collect(Collectors.groupingBy(makeOuterKey));
-    input.close();
     final var innerGroups = inner.collect(Collectors.groupingBy(makeInnerKey));
+    inner.close();
+    return leftJoin(input, innerGroups, makeOuterKey, joiner, makeOutput, collector);
+  }
 
-    return inputGroups.entrySet().stream()
-        .flatMap(
-            e -> {
-              final var innerData = innerGroups.getOrDefault(e.getKey(), List.of());
-
-              return e.getValue().stream()
-                  .map(
-                      left -> {
-                        final var output = makeOutput.apply(joiner.apply(left, null));
-                        innerData.forEach(
-                            right -> collector.accept(output, joiner.apply(left, right)));
-                        return output;
-                      });
-            });
+  /**
+   * Left join a stream of input against a table that has already been built from the inner input
+   * format
+   *
+   * @param input the stream to be joined against
+   * @param innerGroups the inner records grouped by key
+   * @param makeOuterKey create the joining key from an outer record
+   * @param joiner a function to create an intermediate joined type from the two types
+   * @param makeOutput a function to create a new output type; it must accept a joined type where
+   *     the right side will be null
+   * @param collector a function that processes joined inputs with both right and left values to an
+   *     output
+   */
+  @RuntimeInterop
+  public static <I, N, K, J, O> Stream<O> leftJoin(
+      Stream<I> input,
+      Map<K, List<N>> innerGroups,
+      Function<I, K> makeOuterKey,
+      BiFunction<I, N, J> joiner,
+      Function<J, O> makeOutput,
+      BiConsumer<O, J> collector) {
+    return input.map(
+        left -> {
+          final var output = makeOutput.apply(joiner.apply(left, null));
+          innerGroups
+              .getOrDefault(makeOuterKey.apply(left), List.of())
+              .forEach(right -> collector.accept(output, joiner.apply(left, right)));
+          return output;
+        });
   }
 
   public static Optional<Instant> localDate(long year, long month, long day) {
@@ -562,7 +623,8 @@ public final class RuntimeSupport {
         input.collect(
             Collectors.groupingBy(item -> new Holder<>(equals, hashCode.applyAsInt(item), item)));
     input.close();
-    return groups.values().stream().map(list -> list.stream().min(comparator).get());
+    return sameParallelism(
+        input, groups.values().stream().map(list -> list.stream().min(comparator).get()));
   }
 
   public static CallSite pluginArbitraryBootstrap(
@@ -610,14 +672,11 @@ public final class RuntimeSupport {
     if (type.parameterCount() != 0) {
       throw new IllegalArgumentException("Method must take exactly no arguments.");
     }
-    final var id = new Pair<>(regex, flags);
-    if (callsites.containsKey(id)) {
-      return callsites.get(id);
-    }
-    final var pattern = Pattern.compile(regex, flags);
-    final CallSite callsite = new ConstantCallSite(MethodHandles.constant(Pattern.class, pattern));
-    callsites.put(id, callsite);
-    return callsite;
+    return callsites.computeIfAbsent(
+        new Pair<>(regex, flags),
+        id ->
+            new ConstantCallSite(
+                MethodHandles.constant(Pattern.class, Pattern.compile(regex, flags))));
   }
 
   /**
@@ -632,21 +691,26 @@ public final class RuntimeSupport {
   @RuntimeInterop
   public static <I, O> Stream<O> regroup(
       Stream<I> input, Grouper<I, O> grouper, Function<I, O> makeKey) {
-    final var groups =
-        input
-            .map(i -> new Pair<>(makeKey.apply(i), i))
-            .filter(p -> p.first() != null)
-            .collect(
-                Collectors.groupingBy(
-                    Pair::first, Collectors.mapping(Pair::second, Collectors.toList())));
+    // The grouper needs to see every item in a group at once, so the items must be retained, but
+    // there's no need to allocate an intermediate key-item pair for every row
+    final Map<O, List<I>> groups = new HashMap<>();
+    input.forEachOrdered(
+        i -> {
+          final var key = makeKey.apply(i);
+          if (key != null) {
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+          }
+        });
     input.close();
-    return groups.values().stream()
-        .flatMap(
-            list ->
-                grouper
-                    .group(list)
-                    .filter(Subgroup::valid)
-                    .map(subgroup -> subgroup.build(makeKey)));
+    return sameParallelism(
+        input,
+        groups.values().stream()
+            .flatMap(
+                list ->
+                    grouper
+                        .group(list)
+                        .filter(Subgroup::valid)
+                        .map(subgroup -> subgroup.build(makeKey))));
   }
 
   /**
@@ -670,17 +734,22 @@ public final class RuntimeSupport {
   @RuntimeInterop
   public static <I, O> Stream<O> regroup(
       Stream<I> input, Function<I, O> makeKey, BiConsumer<O, I> collector) {
-    final var groups =
-        input
-            .map(i -> new Pair<>(makeKey.apply(i), i))
-            .filter(p -> p.first() != null)
-            .collect(
-                Collectors.groupingBy(
-                    Pair::first, Collectors.mapping(Pair::second, Collectors.toList())));
+    // Each item is folded into its group as it arrives, so the input is never retained. This saves
+    // memory, not allocations: the output value, including its empty collectors, is still created
+    // for every item to find its group, and only the first one created for each group is kept.
+    // Items are visited in encounter order, even for parallel streams, so collectors that depend on
+    // order (e.g., First and List) behave the same as they would for a sequential stream.
+    final Map<O, O> groups = new HashMap<>();
+    input.forEachOrdered(
+        i -> {
+          final var key = makeKey.apply(i);
+          if (key != null) {
+            final var existing = groups.putIfAbsent(key, key);
+            collector.accept(existing == null ? key : existing, i);
+          }
+        });
     input.close();
-    return groups.entrySet().stream()
-        .peek(e -> e.getValue().forEach(x -> collector.accept(e.getKey(), x)))
-        .map(Entry::getKey);
+    return sameParallelism(input, groups.values().stream());
   }
 
   /** Clip the extension off a file path and return just the filename */
@@ -709,6 +778,24 @@ public final class RuntimeSupport {
     return data.stream();
   }
 
+  /**
+   * Make the output of a grouping or joining operation parallel if the input was parallel
+   *
+   * <p>Groupings and joins are barriers that must collect all of their input before producing any
+   * output. The output is always produced as a sequential stream, so switch it back to a parallel
+   * one to allow the rest of the olive to continue in parallel.
+   */
+  private static <T> Stream<T> sameParallelism(BaseStream<?, ?> input, Stream<T> output) {
+    return input.isParallel() ? output.parallel() : output;
+  }
+
+  /** Checks if the first spliterator is known to have fewer items than the second */
+  private static boolean isSmaller(Spliterator<?> first, Spliterator<?> second) {
+    final var firstSize = first.getExactSizeIfKnown();
+    final var secondSize = second.getExactSizeIfKnown();
+    return firstSize >= 0 && secondSize >= 0 && firstSize < secondSize;
+  }
+
   /** Stream a map */
   @RuntimeInterop
   public static Stream<Tuple> stream(Map<?, ?> map) {
@@ -0,0 +1,249 @@
+package ca.on.oicr.gsi.shesmu.server;
+
+import ca.on.oicr.gsi.shesmu.plugin.files.AutoUpdatingDirectory;
+import ca.on.oicr.gsi.shesmu.plugin.files.FileWatcher;
+import ca.on.oicr.gsi.shesmu.plugin.files.WatchedFileListener;
+import ca.on.oicr.gsi.shesmu.runtime.RuntimeSupport;
+import ca.on.oicr.gsi.shesmu.util.LoadedConfiguration;
+import ca.on.oicr.gsi.status.ConfigurationSection;
+import ca.on.oicr.gsi.status.SectionRenderer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.prometheus.client.Gauge;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Separate the execution of different action types, so that a slow action type cannot starve the
+ * others of threads
+ *
+ * <p>Action types that are listed in a <code>.actionlimits</code> file get their own thread pool,
+ * with an optional limit on the number of actions waiting for a thread and an optional limit on
+ * the rate at which actions are performed. All other action types share the action processor's
+ * thread pool.
+ */
+public final class ActionBulkheads implements LoadedConfiguration {
+  /** The execution limits for one action type */
+  public final class Bulkhead {
+    private volatile boolean enabled;
+    private final BlockingExecutor executor;
+    private volatile long nanosPerPermit;
+    private long nextPermit = System.nanoTime();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile int queueDepth = Integer.MAX_VALUE;
+    private final String type;
+
+    private Bulkhead(String type, BlockingExecutor executor) {
+      this.type = type;
+      this.executor = executor;
+    }
+
+    private synchronized void configure(ActionLimit limit) {
+      enabled = limit != null;
+      if (limit == null) {
+        return;
+      }
+      final var concurrency =
+          Math.max(
+              1, Optional.ofNullable(limit.getConcurrency()).orElse(shared.executor.concurrency()));
+      executor.concurrency(concurrency);
+      queueDepth =
+          Optional.ofNullable(limit.getQueueDepth())
+              .map(depth -> concurrency + Math.max(0, depth))
+              .orElse(Integer.MAX_VALUE);
+      nanosPerPermit =
+          Optional.ofNullable(limit.getPerformRate())
+              .filter(rate -> rate > 0)
+              .map(rate -> (long) (TimeUnit.SECONDS.toNanos(1) / rate))
+              .orElse(0L);
+      concurrencyLimit.labels(type).set(executor.concurrency());
+    }
+
+    /** The executor where actions of this type should be performed */
+    public BlockingExecutor executor() {
+      return executor;
+    }
+
+    /**
+     * Wait until the rate limit allows another action to be performed
+     *
+     * <p>This must be called from the bulkhead's own executor, so that only actions of this type
+     * are delayed.
+     */
+    public void throttle() throws InterruptedException {
+      final long delay;
+      synchronized (this) {
+        if (nanosPerPermit == 0) {
+          return;
+        }
+        final var now = System.nanoTime();
+        final var start = Math.max(now, nextPermit);
+        nextPermit = start + nanosPerPermit;
+        delay = start - now;
+      }
+      if (delay > 0) {
+        TimeUnit.NANOSECONDS.sleep(delay);
+      }
+    }
+
+    /** Indicate that an action has finished being performed */
+    public void release() {
+      outstanding.decrementAndGet();
+      if (this != shared) {
+        outstandingCount.labels(type).dec();
+      }
+    }
+
+    /**
+     * Reserve a slot to perform an action
+     *
+     * @return true if the action can be queued; false if too many actions of this type are already
+     *     waiting and the action should be retried later
+     */
+    public boolean tryReserve() {
+      if (outstanding.incrementAndGet() > queueDepth) {
+        outstanding.decrementAndGet();
+        return false;
+      }
+      if (this != shared) {
+        outstandingCount.labels(type).inc();
+      }
+      return true;
+    }
+  }
+
+  private class ActionLimitFile implements WatchedFileListener {
+    private final Path fileName;
+    private Map<String, ActionLimit> limits = Map.of();
+
+    public ActionLimitFile(Path fileName) {
+      this.fileName = fileName;
+    }
+
+    public Path fileName() {
+      return fileName;
+    }
+
+    @Override
+    public void start() {
+      // Do nothing.
+    }
+
+    @Override
+    public void stop() {
+      limits = Map.of();
+      reconfigure();
+    }
+
+    @Override
+    public Optional<Integer> update() {
+      try {
+        limits =
+            RuntimeSupport.MAPPER.readValue(
+                fileName.toFile(), new TypeReference<Map<String, ActionLimit>>() {});
+      } catch (Exception e) {
+        e.printStackTrace();
+        limits = Map.of();
+      }
+      reconfigure();
+      return Optional.empty();
+    }
+  }
+
+  private static final Gauge concurrencyLimit =
+      Gauge.build(
+              "shesmu_action_bulkhead_concurrency",
+              "The number of actions of a particular type that can be performed at once.")
+          .labelNames("type")
+          .register();
+  private static final Gauge outstandingCount =
+      Gauge.build(
+              "shesmu_action_bulkhead_outstanding",
+              "The number of actions of a particular type that are being performed or waiting for a thread.")
+          .labelNames("type")
+          .register();
+  private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+  private AutoUpdatingDirectory<ActionLimitFile> configuration;
+  private final Bulkhead shared;
+
+  /**
+   * Create a new set of bulkheads
+   *
+   * @param shared the executor to use for action types that have no limits configured
+   */
+  public ActionBulkheads(BlockingExecutor shared) {
+    this.shared = new Bulkhead("", shared);
+  }
+
+  /**
+   * Get the bulkhead for an action type
+   *
+   * @param type the action type
+   */
+  public Bulkhead get(String type) {
+    final var bulkhead = bulkheads.get(type);
+    return bulkhead != null && bulkhead.enabled ? bulkhead : shared;
+  }
+
+  @Override
+  public Stream<ConfigurationSection> listConfiguration() {
+    return Stream.of(
+        new ConfigurationSection("Action Limits") {
+
+          @Override
+          public void emit(SectionRenderer renderer) {
+            bulkheads.values().stream()
+                .filter(bulkhead -> bulkhead.enabled)
+                .sorted(Comparator.comparing(bulkhead -> bulkhead.type))
+                .forEach(
+                    bulkhead ->
+                        renderer.line(
+                            bulkhead.type,
+                            String.format(
+                                "%d at once, %d outstanding",
+                                bulkhead.executor.concurrency(),
+                                bulkhead.outstanding.get())));
+          }
+        });
+  }
+
+  private synchronized void reconfigure() {
+    final Map<String, ActionLimit> limits = new TreeMap<>();
+    if (configuration != null) {
+      configuration.stream()
+          .sorted(Comparator.comparing(ActionLimitFile::fileName))
+          .forEach(file -> limits.putAll(file.limits));
+    }
+    for (final var entry : limits.entrySet()) {
+      bulkheads
+          .computeIfAbsent(
+              entry.getKey(),
+              type ->
+                  new Bulkhead(
+                      type,
+                      // Allow idle action types to give up their threads
+                      BlockingExecutor.create("actions-" + type, Thread.MIN_PRIORITY, 1, true)))
+          .configure(entry.getValue());
+    }
+    for (final var bulkhead : bulkheads.values()) {
+      if (!limits.containsKey(bulkhead.type)) {
+        // Actions already queued on this bulkhead will still finish on its executor
+        bulkhead.configure(null);
+      }
+    }
+  }
+
+  public void start(FileWatcher fileWatcher) {
+    if (configuration == null) {
+      configuration =
+          new AutoUpdatingDirectory<>(fileWatcher, ".actionlimits", ActionLimitFile::new);
+      reconfigure();
+    }
+  }
+}
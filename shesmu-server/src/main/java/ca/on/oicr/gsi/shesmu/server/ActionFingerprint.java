@@ -0,0 +1,170 @@
+package ca.on.oicr.gsi.shesmu.server;
+
+import ca.on.oicr.gsi.shesmu.plugin.SourceLocation;
+import ca.on.oicr.gsi.shesmu.plugin.action.Action;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * A fast, 128-bit, non-cryptographic hash of an action's identity
+ *
+ * <p>This is computed from the same data as the action's ID, but using MurmurHash3 rather than
+ * SHA1, so it is much cheaper to compute. Two actions with the same fingerprint are treated as
+ * duplicates without calling {@link Action#equals(Object)}, which, for many actions, has to compare
+ * all their parameters.
+ *
+ * @param high the upper 64 bits of the hash
+ * @param low the lower 64 bits of the hash
+ */
+public record ActionFingerprint(long high, long low) {
+  /** An incremental MurmurHash3 x64 128-bit hash over data provided in arbitrary chunks */
+  static final class Hasher implements Consumer<byte[]> {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private static long fmix(long k) {
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb9fe1a85ec53L;
+      k ^= k >>> 33;
+      return k;
+    }
+
+    private static long littleEndian(byte[] data, int offset, int length) {
+      var result = 0L;
+      for (var i = length - 1; i >= 0; i--) {
+        result = (result << 8) | (data[offset + i] & 0xFFL);
+      }
+      return result;
+    }
+
+    private final byte[] buffer = new byte[16];
+    private int buffered;
+    private long h1;
+    private long h2;
+    private long length;
+
+    Hasher() {
+      this(0);
+    }
+
+    Hasher(int seed) {
+      h1 = seed & 0xFFFFFFFFL;
+      h2 = h1;
+    }
+
+    @Override
+    public void accept(byte[] data) {
+      length += data.length;
+      var offset = 0;
+      // Finish any block left over from the previous call
+      if (buffered > 0) {
+        final var count = Math.min(data.length, buffer.length - buffered);
+        System.arraycopy(data, 0, buffer, buffered, count);
+        buffered += count;
+        offset = count;
+        if (buffered < buffer.length) {
+          return;
+        }
+        block(buffer, 0);
+        buffered = 0;
+      }
+      for (; offset + 16 <= data.length; offset += 16) {
+        block(data, offset);
+      }
+      buffered = data.length - offset;
+      System.arraycopy(data, offset, buffer, 0, buffered);
+    }
+
+    private void block(byte[] data, int offset) {
+      var k1 = littleEndian(data, offset, 8);
+      var k2 = littleEndian(data, offset + 8, 8);
+      k1 *= C1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= C2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= C2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= C1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    ActionFingerprint finish() {
+      if (buffered > 8) {
+        var k2 = littleEndian(buffer, 8, buffered - 8);
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+      }
+      if (buffered > 0) {
+        var k1 = littleEndian(buffer, 0, Math.min(buffered, 8));
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+      }
+      h1 ^= length;
+      h2 ^= length;
+      h1 += h2;
+      h2 += h1;
+      h1 = fmix(h1);
+      h2 = fmix(h2);
+      h1 += h2;
+      h2 += h1;
+      return new ActionFingerprint(h1, h2);
+    }
+  }
+
+  /**
+   * Compute the fingerprint of an action
+   *
+   * @param action the action to fingerprint
+   */
+  public static ActionFingerprint of(Action action) {
+    final var hasher = new Hasher();
+    hasher.accept(action.type().getBytes(StandardCharsets.UTF_8));
+    action.generateUUID(hasher);
+    return hasher.finish();
+  }
+
+  /**
+   * Compute the fingerprint of this action as emitted by an olive
+   *
+   * <p>This includes the olive that emitted it and the tags attached, so that two emissions have
+   * the same fingerprint only if accepting both is redundant.
+   *
+   * @param location the olive that emitted the action
+   * @param tags the tags attached by the olive
+   */
+  public ActionFingerprint emittedBy(SourceLocation location, String[] tags) {
+    final var hasher = new Hasher();
+    final var bytes = new byte[16];
+    for (var i = 0; i < 8; i++) {
+      bytes[i] = (byte) (high >>> (8 * i));
+      bytes[i + 8] = (byte) (low >>> (8 * i));
+    }
+    hasher.accept(bytes);
+    // Each string is followed by a null byte so the boundaries between them are unambiguous
+    final Consumer<String> string =
+        value -> {
+          hasher.accept(value.getBytes(StandardCharsets.UTF_8));
+          hasher.accept(new byte[] {0});
+        };
+    string.accept(location.fileName());
+    string.accept(Integer.toString(location.line()));
+    string.accept(Integer.toString(location.column()));
+    string.accept(location.hash() == null ? "" : location.hash());
+    for (final var tag : tags) {
+      string.accept(tag);
+    }
+    return hasher.finish();
+  }
+}
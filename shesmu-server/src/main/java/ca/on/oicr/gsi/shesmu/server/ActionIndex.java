@@ -0,0 +1,138 @@
+package ca.on.oicr.gsi.shesmu.server;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A secondary index over the actions in the {@link ActionProcessor}
+ *
+ * <p>The index is allowed to contain actions that no longer have the indexed property (or have been
+ * removed from the processor entirely), but must never be missing an action that does. Anything
+ * found using the index must still be checked against the original filter.
+ *
+ * <p>The index holds the processor's per-action information rather than the actions themselves.
+ * The information uses identity for hashing and equality, so building and probing the candidate
+ * sets never calls {@link ca.on.oicr.gsi.shesmu.plugin.action.Action#hashCode()} or {@link
+ * ca.on.oicr.gsi.shesmu.plugin.action.Action#equals(Object)}, which may be expensive.
+ *
+ * @param <K> the type of the property being indexed
+ * @param <V> the type of the per-action information
+ */
+final class ActionIndex<K, V> {
+  /**
+   * A lazy view of the items present in all of several sets
+   *
+   * <p>The smallest set is scanned and each item is checked against the others, so nothing is
+   * copied. The size is only computed if asked for.
+   */
+  private static final class Intersection<V> extends AbstractSet<V> {
+    private final List<Set<V>> rest;
+    private final Set<V> smallest;
+
+    private Intersection(Set<V> smallest, List<Set<V>> rest) {
+      this.smallest = smallest;
+      this.rest = rest;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return smallest.contains(o) && rest.stream().allMatch(set -> set.contains(o));
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+      return stream().iterator();
+    }
+
+    @Override
+    public int size() {
+      return (int) stream().count();
+    }
+
+    @Override
+    public Stream<V> stream() {
+      return smallest.stream().filter(item -> rest.stream().allMatch(set -> set.contains(item)));
+    }
+  }
+
+  /**
+   * Find the items present in all the candidate sets
+   *
+   * @param candidates the sets of candidate items
+   * @return the intersection, or empty if no sets were provided
+   */
+  static <V> Optional<Set<V>> intersect(Stream<Set<V>> candidates) {
+    final List<Set<V>> sets =
+        candidates
+            .sorted(Comparator.comparingInt(ActionIndex::sizeBound))
+            .collect(Collectors.toList());
+    if (sets.isEmpty()) {
+      return Optional.empty();
+    }
+    if (sets.size() == 1) {
+      return Optional.of(sets.get(0));
+    }
+    return Optional.of(new Intersection<>(sets.get(0), sets.subList(1, sets.size())));
+  }
+
+  /** The size of a set, or an upper bound if computing the size requires a scan */
+  private static int sizeBound(Set<?> set) {
+    return set instanceof Intersection ? ((Intersection<?>) set).smallest.size() : set.size();
+  }
+
+  /**
+   * Find the items present in any of the candidate sets
+   *
+   * @param candidates the sets of candidate items
+   * @return the union
+   */
+  static <V> Set<V> union(List<Set<V>> candidates) {
+    if (candidates.size() == 1) {
+      return candidates.get(0);
+    }
+    final Set<V> result = new HashSet<>();
+    candidates.forEach(result::addAll);
+    return result;
+  }
+
+  private final Map<K, Set<V>> index = new ConcurrentHashMap<>();
+
+  /** Record that an action has a property value */
+  public void add(K key, V information) {
+    index.compute(
+        key,
+        (k, items) -> {
+          final var result = items == null ? ConcurrentHashMap.<V>newKeySet() : items;
+          result.add(information);
+          return result;
+        });
+  }
+
+  /** Find all the actions that have any of the property values provided */
+  public Set<V> find(Stream<K> keys) {
+    return union(
+        keys.distinct()
+            .map(key -> Collections.unmodifiableSet(index.getOrDefault(key, Set.of())))
+            .collect(Collectors.toList()));
+  }
+
+  /** Record that an action no longer has a property value */
+  public void remove(K key, V information) {
+    index.computeIfPresent(
+        key,
+        (k, items) -> {
+          items.remove(information);
+          return items.isEmpty() ? null : items;
+        });
+  }
+}
@@ -0,0 +1,382 @@
+package ca.on.oicr.gsi.shesmu.server;
+
+import ca.on.oicr.gsi.shesmu.plugin.SourceLocation;
+import ca.on.oicr.gsi.shesmu.plugin.action.ActionState;
+import io.prometheus.client.Gauge;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * An append-only, memory-mapped journal of the state of the actions in the {@link ActionProcessor}
+ *
+ * <p>The file starts with a magic number and a format version; a journal in any other format is
+ * discarded rather than misread. Each record is a 4-byte length followed by the record itself. The
+ * payload is written before the length, so a crash while writing leaves a zero length that marks
+ * the end of the journal. Strings are stored as a 4-byte length followed by UTF-8 bytes, so there
+ * is no limit on the length of tags or file names.
+ * Since records are only appended, the file is rewritten with only the current state of every
+ * action once it contains mostly stale records.
+ *
+ * <p>When the journal is opened, the last state of every action is loaded and held until the olives
+ * produce the matching action again. Records that are never claimed are kept through compactions
+ * for a grace period, to give olives that are slow to run a chance to reclaim them, and then
+ * discarded.
+ */
+final class ActionJournal implements AutoCloseable {
+  /**
+   * The saved state of an action
+   *
+   * @param fingerprint the action's fingerprint
+   * @param state the last state of the action
+   * @param lastChecked the last time the action was performed
+   * @param lastStateTransition the last time the action changed state
+   * @param tags the tags attached to the action by olives
+   * @param locations the olives that generated the action
+   */
+  public record Entry(
+      ActionFingerprint fingerprint,
+      ActionState state,
+      Instant lastChecked,
+      Instant lastStateTransition,
+      Set<String> tags,
+      Set<SourceLocation> locations) {}
+
+  private static final int FORMAT_VERSION = 2;
+  private static final int HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int MAGIC = 0x53484a4e;
+  private static final long MAP_CHUNK_SIZE = 16L * 1024 * 1024;
+  private static final byte RECORD_REMOVE = 1;
+  private static final byte RECORD_UPDATE = 0;
+  private static final Duration RESTORE_GRACE = Duration.ofHours(6);
+  private static final Gauge journalBytes =
+      Gauge.build("shesmu_action_journal_bytes", "The number of bytes used by the action journal.")
+          .register();
+  private static final Gauge journalRecords =
+      Gauge.build(
+              "shesmu_action_journal_records",
+              "The number of records in the action journal, including stale ones.")
+          .register();
+  private static final Gauge restoredUnclaimed =
+      Gauge.build(
+              "shesmu_action_journal_unclaimed",
+              "The number of actions loaded from the journal that have not been generated by an olive since startup.")
+          .register();
+
+  /**
+   * Open a journal, creating it if it does not exist
+   *
+   * @param path the journal file
+   */
+  public static ActionJournal open(Path path) throws IOException {
+    final Map<ActionFingerprint, Entry> restored = new ConcurrentHashMap<>();
+    var records = 0L;
+    var length = (long) HEADER_SIZE;
+    if (Files.exists(path)) {
+      final var fileSize = Files.size(path);
+      try (final var input =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+        final var supported =
+            fileSize >= HEADER_SIZE
+                && input.readInt() == MAGIC
+                && input.readInt() == FORMAT_VERSION;
+        if (!supported && fileSize > 0) {
+          System.err.printf("Action journal %s has an unsupported format; discarding it\n", path);
+        }
+        while (supported) {
+          final int size;
+          try {
+            size = input.readInt();
+          } catch (EOFException e) {
+            break;
+          }
+          if (size <= 0) {
+            break;
+          }
+          // A corrupt length could be anything, so don't allocate more than the file could hold
+          if (size > fileSize - length - Integer.BYTES) {
+            System.err.printf("Truncated record at offset %d in action journal %s\n", length, path);
+            break;
+          }
+          final var payload = new byte[size];
+          try {
+            input.readFully(payload);
+          } catch (EOFException e) {
+            System.err.printf("Truncated record at offset %d in action journal %s\n", length, path);
+            break;
+          }
+          try {
+            read(payload, restored);
+            records++;
+          } catch (IOException | RuntimeException e) {
+            // The record is corrupt or was written by an incompatible version (e.g., a state that
+            // no longer exists); the action will be treated as new when an olive generates it
+            System.err.printf(
+                "Skipping bad record at offset %d in action journal %s\n", length, path);
+            e.printStackTrace();
+          }
+          length += Integer.BYTES + size;
+        }
+      }
+    }
+    System.out.printf("Restored %d actions from journal %s\n", restored.size(), path);
+    final var journal = new ActionJournal(path, restored, records, length);
+    // Immediately compact to discard any partial record at the end and the stale records
+    journal.compact(Stream.empty());
+    return journal;
+  }
+
+  private static void read(byte[] payload, Map<ActionFingerprint, Entry> restored)
+      throws IOException {
+    final var input = new DataInputStream(new ByteArrayInputStream(payload));
+    final var type = input.readByte();
+    final var fingerprint = new ActionFingerprint(input.readLong(), input.readLong());
+    if (type == RECORD_REMOVE) {
+      restored.remove(fingerprint);
+      return;
+    }
+    final var state = ActionState.valueOf(readString(input));
+    final var lastChecked = Instant.ofEpochMilli(input.readLong());
+    final var lastStateTransition = Instant.ofEpochMilli(input.readLong());
+    final Set<String> tags = new TreeSet<>();
+    for (var i = input.readInt(); i > 0; i--) {
+      tags.add(readString(input));
+    }
+    final Set<SourceLocation> locations = new TreeSet<>();
+    for (var i = input.readInt(); i > 0; i--) {
+      locations.add(
+          new SourceLocation(
+              readString(input), input.readInt(), input.readInt(), readString(input)));
+    }
+    restored.put(
+        fingerprint,
+        new Entry(fingerprint, state, lastChecked, lastStateTransition, tags, locations));
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    final var size = input.readInt();
+    // The input is an in-memory record, so the available bytes are exactly what is left of it
+    if (size < 0 || size > input.available()) {
+      throw new IOException(String.format("Bad string length %d", size));
+    }
+    final var bytes = new byte[size];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] write(Entry entry) throws IOException {
+    final var buffer = new ByteArrayOutputStream();
+    final var output = new DataOutputStream(buffer);
+    output.writeByte(RECORD_UPDATE);
+    writeFingerprint(output, entry.fingerprint());
+    writeString(output, entry.state().name());
+    output.writeLong(entry.lastChecked().toEpochMilli());
+    output.writeLong(entry.lastStateTransition().toEpochMilli());
+    output.writeInt(entry.tags().size());
+    for (final var tag : entry.tags()) {
+      writeString(output, tag);
+    }
+    output.writeInt(entry.locations().size());
+    for (final var location : entry.locations()) {
+      writeString(output, location.fileName());
+      output.writeInt(location.line());
+      output.writeInt(location.column());
+      writeString(output, Objects.requireNonNullElse(location.hash(), ""));
+    }
+    output.flush();
+    return buffer.toByteArray();
+  }
+
+  private static void writeFingerprint(DataOutputStream output, ActionFingerprint fingerprint)
+      throws IOException {
+    output.writeLong(fingerprint.high());
+    output.writeLong(fingerprint.low());
+  }
+
+  private static byte[] writeRemove(ActionFingerprint fingerprint) throws IOException {
+    final var buffer = new ByteArrayOutputStream();
+    final var output = new DataOutputStream(buffer);
+    output.writeByte(RECORD_REMOVE);
+    writeFingerprint(output, fingerprint);
+    output.flush();
+    return buffer.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    final var bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private MappedByteBuffer buffer;
+  private long bufferStart;
+  private FileChannel channel;
+  private boolean compactionPending;
+  private long length;
+  private final Path path;
+  private long records;
+  private final Map<ActionFingerprint, Entry> restored;
+  private final Instant started = Instant.now();
+
+  private ActionJournal(
+      Path path, Map<ActionFingerprint, Entry> restored, long records, long length) {
+    this.path = path;
+    this.restored = restored;
+    this.records = records;
+    this.length = length;
+  }
+
+  private void append(byte[] payload) throws IOException {
+    final var required = Integer.BYTES + payload.length;
+    if (buffer == null || buffer.remaining() < required) {
+      remap(required);
+    }
+    final var start = buffer.position();
+    buffer.position(start + Integer.BYTES);
+    buffer.put(payload);
+    // Only write the length once the payload is complete, so a partial record is never read
+    buffer.putInt(start, payload.length);
+    length += required;
+    records++;
+  }
+
+  /**
+   * Take the saved state for an action, if one exists
+   *
+   * <p>Each saved state can only be claimed once. Actions are identified by their fingerprint
+   * rather than their ID, so that the expensive ID does not have to be computed for every new
+   * action.
+   *
+   * @param fingerprint the action's fingerprint
+   */
+  public Optional<Entry> claim(ActionFingerprint fingerprint) {
+    final var result = Optional.ofNullable(restored.remove(fingerprint));
+    restoredUnclaimed.set(restored.size());
+    return result;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (buffer != null) {
+      buffer.force();
+      buffer = null;
+    }
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  /**
+   * Rewrite the journal with only the current state of every action
+   *
+   * @param live the current state of all actions in the processor
+   */
+  public synchronized void compact(Stream<Entry> live) throws IOException {
+    // If anything goes wrong, the journal on disk is untouched, but the change queues have been
+    // discarded, so the next write must try to compact again
+    compactionPending = true;
+    close();
+    final var temporary = path.resolveSibling(path.getFileName() + ".compact");
+    Files.deleteIfExists(temporary);
+    records = 0;
+    channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    bufferStart = 0;
+    buffer = null;
+    remap(HEADER_SIZE);
+    buffer.putInt(MAGIC);
+    buffer.putInt(FORMAT_VERSION);
+    length = HEADER_SIZE;
+    if (Duration.between(started, Instant.now()).compareTo(RESTORE_GRACE) > 0) {
+      restored.clear();
+    }
+    for (final var entry :
+        (Iterable<Entry>) Stream.concat(live, restored.values().stream())::iterator) {
+      append(write(entry));
+    }
+    if (buffer != null) {
+      buffer.force();
+    }
+    Files.move(
+        temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    compactionPending = false;
+    restoredUnclaimed.set(restored.size());
+    updateMetrics();
+  }
+
+  /**
+   * Checks if the journal has accumulated enough stale records that it should be compacted
+   *
+   * @param liveActions the number of actions currently in the processor
+   */
+  public synchronized boolean needsCompaction(long liveActions) {
+    return compactionPending
+        || records > 1000 && records > 2 * (liveActions + restored.size());
+  }
+
+  private void remap(int required) throws IOException {
+    if (buffer != null) {
+      buffer.force();
+      bufferStart += buffer.position();
+    }
+    buffer = channel.map(MapMode.READ_WRITE, bufferStart, Math.max(MAP_CHUNK_SIZE, required));
+  }
+
+  private void updateMetrics() {
+    journalBytes.set(length);
+    journalRecords.set(records);
+  }
+
+  /**
+   * Append changes to the journal
+   *
+   * @param updates the new state of actions that have changed
+   * @param removals the fingerprints of actions that have been purged since the last write
+   */
+  public synchronized void write(Stream<Entry> updates, Stream<ActionFingerprint> removals)
+      throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      bufferStart = length;
+      buffer = null;
+    }
+    // Removals must be written first in case an action was purged and then generated again
+    for (final var fingerprint : (Iterable<ActionFingerprint>) removals::iterator) {
+      restored.remove(fingerprint);
+      append(writeRemove(fingerprint));
+    }
+    for (final var entry : (Iterable<Entry>) updates::iterator) {
+      append(write(entry));
+    }
+    if (buffer != null) {
+      buffer.force();
+    }
+    updateMetrics();
+  }
+}
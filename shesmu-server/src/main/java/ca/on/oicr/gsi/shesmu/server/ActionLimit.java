@@ -0,0 +1,40 @@
+package ca.on.oicr.gsi.shesmu.server;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/** The limits on how an action type can be performed, as read from an action limits file */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ActionLimit {
+  private Integer concurrency;
+  private Double performRate;
+  private Integer queueDepth;
+
+  /** The maximum number of actions of this type that can be performed at once */
+  public Integer getConcurrency() {
+    return concurrency;
+  }
+
+  /** The maximum number of actions of this type that can be performed per second */
+  public Double getPerformRate() {
+    return performRate;
+  }
+
+  /**
+   * The maximum number of actions of this type that can be waiting for a thread to be performed
+   */
+  public Integer getQueueDepth() {
+    return queueDepth;
+  }
+
+  public void setConcurrency(Integer concurrency) {
+    this.concurrency = concurrency;
+  }
+
+  public void setPerformRate(Double performRate) {
+    this.performRate = performRate;
+  }
+
+  public void setQueueDepth(Integer queueDepth) {
+    this.queueDepth = queueDepth;
+  }
+}
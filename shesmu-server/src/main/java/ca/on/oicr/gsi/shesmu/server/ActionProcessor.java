@@ -13,6 +13,7 @@ import ca.on.oicr.gsi.shesmu.plugin.action.ActionCommand.Preference;
 import ca.on.oicr.gsi.shesmu.plugin.action.ActionServices;
 import ca.on.oicr.gsi.shesmu.plugin.action.ActionState;
 import ca.on.oicr.gsi.shesmu.plugin.dumper.Dumper;
+import ca.on.oicr.gsi.shesmu.plugin.files.FileWatcher;
 import ca.on.oicr.gsi.shesmu.plugin.filter.ActionFilter;
 import ca.on.oicr.gsi.shesmu.plugin.filter.ActionFilterBuilder;
 import ca.on.oicr.gsi.shesmu.plugin.filter.AlertFilterBuilder;
@@ -22,6 +23,8 @@ import ca.on.oicr.gsi.shesmu.runtime.OliveServices;
 import ca.on.oicr.gsi.shesmu.runtime.RuntimeSupport;
 import ca.on.oicr.gsi.shesmu.server.plugins.PluginManager;
 import ca.on.oicr.gsi.shesmu.util.AutoLock;
+import ca.on.oicr.gsi.shesmu.util.LoadedConfiguration;
+import ca.on.oicr.gsi.status.ConfigurationSection;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -31,17 +34,21 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.prometheus.client.Collector;
 import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -49,13 +56,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -76,7 +87,7 @@ import java.util.stream.Stream;
  * boolean)} until successful.
  */
 public final class ActionProcessor
-    implements OliveServices, InputSource, MetroDiagram.OliveFlowReader {
+    implements OliveServices, InputSource, LoadedConfiguration, MetroDiagram.OliveFlowReader {
 
   private interface Bin<T> extends Comparator<T> {
     long bucket(T min, long width, T value);
@@ -187,6 +198,17 @@ public final class ActionProcessor
 
   /** A filter all the actions based on some criteria */
   public abstract static class Filter {
+    /**
+     * Find the actions that might match this filter using the processor's indices
+     *
+     * <p>The actions returned must still be checked using {@link #check(Action, Information)}.
+     *
+     * @return the candidate actions or an empty optional if every action must be checked
+     */
+    protected Optional<Set<Information>> candidates() {
+      return Optional.empty();
+    }
+
     protected abstract boolean check(Action action, Information info);
 
     /** Produce a filter that selects the opposite output of this filter. */
@@ -202,36 +224,69 @@ public final class ActionProcessor
     }
   }
 
-  private static class Information implements Comparable<Information> {
+  private static class Information {
 
+    /** Whether {@link Action#accepted(String)} has been called */
+    boolean acceptedNotified;
+    final Action action;
     public final Instant created = Instant.now();
-    final String id;
+    final ActionFingerprint fingerprint;
+    private volatile String id;
     Instant lastAdded = Instant.now();
     Instant lastChecked = Instant.EPOCH;
     ActionState lastState = ActionState.UNKNOWN;
     Instant lastStateTransition = Instant.now();
+    /** All the olive-provided and self-determined tags that have been added to the tag index */
+    final Set<String> indexedTags = ConcurrentHashMap.newKeySet();
+
     final Set<SourceLocation> locations = ConcurrentHashMap.newKeySet();
+    /**
+     * Incremented every time the action is scheduled, so that a scheduled check is discarded if the
+     * action has been rescheduled since
+     */
+    final AtomicLong scheduleGeneration = new AtomicLong();
+    /**
+     * Set once the action has been removed from the processor, so that a perform or olive that
+     * finishes afterwards does not put it back in the indices; guarded by this object's monitor
+     */
+    boolean purged;
+    /**
+     * Set if the state was restored from the journal and the action has not been performed since,
+     * so its internal state has not been rebuilt yet
+     */
+    volatile boolean restored;
+
     final Set<String> tags = ConcurrentHashMap.newKeySet();
     String thrown;
     volatile boolean updateInProgress;
 
-    private Information(Action action) {
-      String id;
-      try {
-        final var digest = MessageDigest.getInstance("SHA1");
-        digest.update(action.type().getBytes(StandardCharsets.UTF_8));
-        action.generateUUID(digest::update);
-        id = "shesmu:" + Utils.bytesToHex(digest.digest());
-      } catch (NoSuchAlgorithmException e) {
-        e.printStackTrace();
-        id = "";
-      }
-      this.id = id;
+    private Information(Action action, ActionFingerprint fingerprint) {
+      this.action = action;
+      this.fingerprint = fingerprint;
     }
 
-    @Override
-    public int compareTo(Information information) {
-      return Integer.compare(lastState.processPriority(), information.lastState.processPriority());
+    /**
+     * The action's unique ID
+     *
+     * <p>This is a SHA1 hash, which is expensive to compute, so it is only computed the first time
+     * it is needed.
+     */
+    String id() {
+      var result = id;
+      if (result == null) {
+        try {
+          final var digest = MessageDigest.getInstance("SHA1");
+          digest.update(action.type().getBytes(StandardCharsets.UTF_8));
+          action.generateUUID(digest::update);
+          result = "shesmu:" + Utils.bytesToHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+          e.printStackTrace();
+          result = "";
+        }
+        // If two threads race, they will compute the same value, so it doesn't matter who wins
+        id = result;
+      }
+      return result;
     }
   }
 
@@ -264,6 +319,34 @@ public final class ActionProcessor
     protected abstract Optional<Instant> get(Action action, Information info);
   }
 
+  /**
+   * A check of an action that will be performed once it is due
+   *
+   * <p>The ranking information is captured when the action becomes due, so it cannot change while
+   * the check is waiting in the ready queue.
+   */
+  private static final class ScheduledCheck {
+    private final Action action;
+    private final long ageBucket;
+    private final Instant due;
+    private final long generation;
+    private final Information information;
+    private final int priority;
+    private final int processPriority;
+
+    private ScheduledCheck(Action action, Information information, long generation, Instant due) {
+      this.action = action;
+      this.information = information;
+      this.generation = generation;
+      this.due = due;
+      // Bucket the time since last checked, to avoid starving actions of attention because of
+      // priority
+      ageBucket = information.lastChecked.getEpochSecond() / 600;
+      priority = action.priority();
+      processPriority = information.lastState.processPriority();
+    }
+  }
+
   public static final int ACTION_PERFORM_THREADS =
       Math.max(1, Runtime.getRuntime().availableProcessors() / 2 + 1);
   private static final BinMember<Instant> ADDED =
@@ -534,6 +617,13 @@ public final class ActionProcessor
           "shesmu_action_perform_time",
           "The length of time for an action to update it state in seconds.",
           "type");
+  private static final Histogram actionQueueWaitTime =
+      Histogram.build()
+          .buckets(0.1, 1.0, 10.0, 60.0, 300.0, 600.0, 1800.0, 3600.0)
+          .name("shesmu_action_queue_wait_time")
+          .help("The time an action spent waiting for a thread and its rate limit, in seconds.")
+          .labelNames("type")
+          .register();
   private static final Gauge actionThrows =
       Gauge.build(
               "shesmu_action_perform_throw",
@@ -549,6 +639,14 @@ public final class ActionProcessor
   private static final Gauge lastRun =
       Gauge.build("shesmu_action_perform_last_time", "The last time the actions were processed.")
           .register();
+  /**
+   * Sort checks by their ActionState's processPriority so that certain ActionStates get checked
+   * first, then by the time since last checked, and then priority.
+   */
+  private static final Comparator<ScheduledCheck> READY_ORDER =
+      Comparator.<ScheduledCheck>comparingInt(check -> check.processPriority)
+          .thenComparingLong(check -> check.ageBucket)
+          .thenComparingInt(check -> check.priority);
   private static final Gauge oldest =
       Gauge.build("shesmu_action_oldest_time", "The oldest action in a particular state.")
           .labelNames("state", "type")
@@ -582,10 +680,46 @@ public final class ActionProcessor
     return x -> SLASH.splitAsStream(x).skip(commonPrefix.size()).collect(Collectors.joining("/"));
   }
 
+  private static ActionJournal.Entry journalEntry(Information information) {
+    return new ActionJournal.Entry(
+        information.fingerprint,
+        information.lastState,
+        information.lastChecked,
+        information.lastStateTransition,
+        new TreeSet<>(information.tags),
+        new TreeSet<>(information.locations));
+  }
+
+  /**
+   * Add an item to a concurrent set, avoiding a write if it is already present
+   *
+   * <p>Reads of a concurrent set never block, but adding an item always contends for the lock on
+   * the item's bin, even if the item is already present.
+   *
+   * @return true if the item was added by this call
+   */
+  private static <T> boolean addIfMissing(Set<T> set, T item) {
+    return !set.contains(item) && set.add(item);
+  }
+
   public static Filter or(Stream<Filter> filters) {
     return new Filter() {
       private final List<Filter> filterList = filters.toList();
 
+      @Override
+      protected Optional<Set<Information>> candidates() {
+        // If any of the filters needs a full scan, then the union does too
+        final List<Set<Information>> candidates = new ArrayList<>();
+        for (final var filter : filterList) {
+          final var filterCandidates = filter.candidates();
+          if (filterCandidates.isEmpty()) {
+            return Optional.empty();
+          }
+          candidates.add(filterCandidates.get());
+        }
+        return Optional.of(ActionIndex.union(candidates));
+      }
+
       @Override
       protected boolean check(Action action, Information info) {
         return filterList.stream().anyMatch(f -> f.check(action, info));
@@ -619,9 +753,22 @@ public final class ActionProcessor
 
   private final ActionServices actionServices;
   private final Map<Action, Information> actions = new ConcurrentHashMap<>();
+  private final Map<ActionFingerprint, Information> byFingerprint = new ConcurrentHashMap<>();
   private final AutoLock alertLock = new AutoLock();
   private final Map<Map<String, String>, Alert> alerts = new HashMap<>();
   private final URI baseUri;
+  private final ActionBulkheads bulkheads;
+  private final ActionIndex<String, Information> byFile = new ActionIndex<>();
+  private final ActionIndex<SourceLocation, Information> byLocation =
+      new ActionIndex<>();
+  private final ActionIndex<ActionState, Information> byState = new ActionIndex<>();
+  private final ActionIndex<String, Information> byTag = new ActionIndex<>();
+  private final ActionIndex<String, Information> byType = new ActionIndex<>();
+  private final Optional<ActionJournal> journal;
+  private final Set<Action> journalDirty = ConcurrentHashMap.newKeySet();
+  private final Queue<ActionFingerprint> journalRemoved = new ConcurrentLinkedQueue<>();
+  // Only accessed by the update thread
+  private final PriorityQueue<ScheduledCheck> ready = new PriorityQueue<>(READY_ORDER);
   private String currentAlerts = "[]";
   private final AtomicInteger currentRunningActions = new AtomicInteger();
   private final Set<String> knownActionTypes = ConcurrentHashMap.newKeySet();
@@ -629,49 +776,135 @@ public final class ActionProcessor
   private final Set<String> pausedFiles = ConcurrentHashMap.newKeySet();
   private final Set<SourceLocation> pausedOlives = ConcurrentHashMap.newKeySet();
   private final Set<SourceLocation> sourceLocations = ConcurrentHashMap.newKeySet();
+  /**
+   * The newest state transition time of all the actions of a particular type in a particular state
+   *
+   * <p>Each entry is a multiset of the transition times, so that the newest time can be found when
+   * an action leaves the state.
+   */
+  private final Map<Pair<ActionState, String>, TreeMap<Instant, Integer>> transitionTimes =
+      new HashMap<>();
   private final ScheduledExecutorService timeoutExecutor =
       Executors.newSingleThreadScheduledExecutor();
-  private final ExecutorService workExecutor =
-      Executors.newFixedThreadPool(
-          ACTION_PERFORM_THREADS, new ShesmuThreadFactory("actions", Thread.MIN_PRIORITY));
+  private final PriorityBlockingQueue<ScheduledCheck> waiting =
+      new PriorityBlockingQueue<>(11, Comparator.comparing(check -> check.due));
+  private final BlockingExecutor workExecutor =
+      BlockingExecutor.create("actions", Thread.MIN_PRIORITY, ACTION_PERFORM_THREADS, false);
 
-  public ActionProcessor(URI baseUri, PluginManager manager, ActionServices actionServices) {
+  /**
+   * Create a new action processor
+   *
+   * @param baseUri the URL of this server, used to generate links in alerts
+   * @param manager the plugin manager for pushing alerts and logging
+   * @param actionServices the services provided to actions when they are performed
+   * @param journalPath the file where action state should be saved so that it can be restored
+   *     after a restart; if empty, action state will not be saved
+   */
+  public ActionProcessor(
+      URI baseUri,
+      PluginManager manager,
+      ActionServices actionServices,
+      Optional<Path> journalPath) {
     super();
     this.baseUri = baseUri;
     this.manager = manager;
     this.actionServices = actionServices;
+    this.bulkheads = new ActionBulkheads(workExecutor);
+    this.journal =
+        journalPath.flatMap(
+            path -> {
+              try {
+                return Optional.of(ActionJournal.open(path));
+              } catch (IOException e) {
+                System.err.printf("Failed to open action journal %s\n", path);
+                e.printStackTrace();
+                return Optional.empty();
+              }
+            });
   }
 
   /**
    * Add an action to the execution pool
    *
    * <p>If this action is a duplicate of an existing action, the existing state is kept.
+   *
+   * <p>Olives emit the same actions over and over, so duplicates are handled without taking any
+   * locks: the existing information is found with a lock-free read and the sets it contains are
+   * only written if they don't already contain the location and tags. New actions are inserted
+   * atomically, so if two threads race to add the same action, only one is accepted.
+   *
+   * <p>Existing actions are found using their fingerprint, which avoids comparing all of an
+   * action's parameters using {@link Action#equals(Object)}. An action's ID is not computed here;
+   * {@link Action#accepted(String)} is called just before the action is first performed.
    */
   @Override
-  public synchronized boolean accept(
+  public boolean accept(
       Action action, String filename, int line, int column, String hash, String[] tags) {
-    Information information;
-    boolean isDuplicate;
-    knownActionTypes.add(action.type());
-    if (!actions.containsKey(action)) {
-      information = new Information(action);
-      action.accepted(information.id);
-      actions.put(action, information);
-      stateCount.labels(ActionState.UNKNOWN.name(), action.type()).inc();
-      isDuplicate = false;
-    } else {
+    return accept(action, ActionFingerprint.of(action), filename, line, column, hash, tags);
+  }
+
+  @Override
+  public boolean accept(
+      Action action,
+      ActionFingerprint fingerprint,
+      String filename,
+      int line,
+      int column,
+      String hash,
+      String[] tags) {
+    addIfMissing(knownActionTypes, action.type());
+    var information = byFingerprint.get(fingerprint);
+    if (information == null) {
+      // If an action's fingerprint doesn't match, but it is still equal to an existing action, fall
+      // back to the slow path
       information = actions.get(action);
-      // This addresses a race condition where the action is concurrently purged
-      if (information == null) {
-        return true;
+    }
+    final boolean isDuplicate;
+    if (information == null) {
+      final var candidate = new Information(action, fingerprint);
+      information =
+          actions.computeIfAbsent(
+              action,
+              k -> {
+                restore(candidate);
+                return candidate;
+              });
+      if (information == candidate) {
+        byFingerprint.put(fingerprint, information);
+        register(action, information);
+        isDuplicate = false;
+      } else {
+        // Another olive added the same action while we were creating the information
+        information.lastAdded = Instant.now();
+        isDuplicate = true;
       }
+    } else {
+      // If the action is concurrently purged, this will update the discarded information; the
+      // action will be treated as a duplicate and not resurrected
       information.lastAdded = Instant.now();
       isDuplicate = true;
     }
     final var location = new SourceLocation(filename, line, column, hash);
-    information.locations.add(location);
-    information.tags.addAll(List.of(tags));
-    sourceLocations.add(location);
+    if (addIfMissing(information.locations, location)) {
+      synchronized (information) {
+        if (!information.purged) {
+          byLocation.add(location, information);
+          byFile.add(filename, information);
+          markJournalDirty(action);
+        }
+      }
+    }
+    for (final var tag : tags) {
+      if (addIfMissing(information.tags, tag)) {
+        synchronized (information) {
+          if (!information.purged) {
+            indexTag(information, tag);
+            markJournalDirty(action);
+          }
+        }
+      }
+    }
+    addIfMissing(sourceLocations, location);
     lastAdd.setToCurrentTime();
     return isDuplicate;
   }
@@ -719,7 +952,7 @@ public final class ActionProcessor
   }
 
   public Stream<String> actionIds(Filter... filters) {
-    return startStream(filters).map(e -> e.getValue().id);
+    return startStream(filters).map(e -> e.getValue().id());
   }
 
   public void alerts(JsonGenerator output, Predicate<Alert> predicate) throws IOException {
@@ -755,7 +988,7 @@ public final class ActionProcessor
                 Collectors.partitioningBy(
                     e -> {
                       final Map<String, String> labels = new TreeMap<>();
-                      labels.put("action", e.getValue().id);
+                      labels.put("action", e.getValue().id());
                       labels.put("action_type", e.getKey().type());
                       return e.getKey()
                           .commands()
@@ -789,11 +1022,6 @@ public final class ActionProcessor
                                               labels.put("command", c.command());
                                               pluginManager.log("Performed command", labels);
                                               purge.add(e.getKey());
-                                              stateCount
-                                                  .labels(
-                                                      e.getValue().lastState.name(),
-                                                      e.getKey().type())
-                                                  .dec();
                                               return true;
                                             }
 
@@ -801,20 +1029,8 @@ public final class ActionProcessor
                                             public Boolean reset() {
                                               labels.put("command", c.command());
                                               pluginManager.log("Performed command", labels);
-                                              if (e.getValue().lastState != ActionState.UNKNOWN) {
-                                                stateCount
-                                                    .labels(
-                                                        e.getValue().lastState.name(),
-                                                        e.getKey().type())
-                                                    .dec();
-                                                stateCount
-                                                    .labels(
-                                                        ActionState.UNKNOWN.name(),
-                                                        e.getKey().type())
-                                                    .inc();
-                                                e.getValue().lastStateTransition = Instant.now();
-                                              }
-                                              e.getValue().lastState = ActionState.UNKNOWN;
+                                              updateState(
+                                                  e.getKey(), e.getValue(), ActionState.UNKNOWN);
                                               return true;
                                             }
                                           },
@@ -822,7 +1038,7 @@ public final class ActionProcessor
                               (a, b) -> a || b);
                     },
                     Collectors.counting()));
-    purge.forEach(actions::remove);
+    removeActions(purge);
     purge.forEach(Action::purgeCleanup);
     return new CommandStatistics(
         count.getOrDefault(true, 0L),
@@ -927,7 +1143,6 @@ public final class ActionProcessor
   public Stream<ObjectNode> drain(SourceLocationLinker linker, Filter... filters) {
     final Set<Action> deadActions = new HashSet<>();
     return startStream(filters)
-        .peek(e -> stateCount.labels(e.getValue().lastState.name(), e.getKey().type()).dec())
         .map(
             entry -> {
               deadActions.add(entry.getKey());
@@ -935,7 +1150,7 @@ public final class ActionProcessor
             })
         .onClose(
             () -> {
-              actions.keySet().removeAll(deadActions);
+              removeActions(deadActions);
               deadActions.forEach(Action::purgeCleanup);
             });
   }
@@ -948,7 +1163,7 @@ public final class ActionProcessor
                 entry ->
                     new ShesmuIntrospectionValue(
                         entry.getKey(),
-                        entry.getValue().id,
+                        entry.getValue().id(),
                         entry.getValue().lastStateTransition,
                         entry.getValue().lastChecked,
                         entry.getValue().created,
@@ -998,6 +1213,13 @@ public final class ActionProcessor
         return new Filter() {
           private final List<Filter> filterList = filters.collect(Collectors.toList());
 
+          @Override
+          protected Optional<Set<Information>> candidates() {
+            // Any filters that can't use an index will be checked on the intersection
+            return ActionIndex.intersect(
+                filterList.stream().map(Filter::candidates).flatMap(Optional::stream));
+          }
+
           @Override
           protected boolean check(Action action, Information info) {
             return filterList.stream().allMatch(f -> f.check(action, info));
@@ -1093,6 +1315,11 @@ public final class ActionProcessor
         final var set = files.collect(Collectors.toSet());
         return new Filter() {
 
+          @Override
+          protected Optional<Set<Information>> candidates() {
+            return Optional.of(byFile.find(set.stream()));
+          }
+
           @Override
           protected boolean check(Action action, Information info) {
             return info.locations.stream().map(SourceLocation::fileName).anyMatch(set::contains);
@@ -1112,9 +1339,17 @@ public final class ActionProcessor
        */
       @Override
       public Filter fromSourceLocation(Stream<SourceOliveLocation> locations) {
-        final List<Predicate<SourceLocation>> list = locations.collect(Collectors.toList());
+        final List<SourceOliveLocation> list = locations.collect(Collectors.toList());
         return new Filter() {
 
+          @Override
+          protected Optional<Set<Information>> candidates() {
+            // A source olive location can only match locations in the same file
+            return Optional.of(
+                byFile.find(
+                    list.stream().map(SourceOliveLocation::getFile).filter(Objects::nonNull)));
+          }
+
           @Override
           protected boolean check(Action action, Information info) {
             return list.stream().anyMatch(l -> info.locations.stream().anyMatch(l));
@@ -1133,7 +1368,7 @@ public final class ActionProcessor
 
           @Override
           protected boolean check(Action action, Information info) {
-            return ids.contains(info.id);
+            return ids.contains(info.id());
           }
         };
       }
@@ -1149,6 +1384,11 @@ public final class ActionProcessor
             states.collect(Collectors.toCollection(() -> EnumSet.noneOf(ActionState.class)));
         return new Filter() {
 
+          @Override
+          protected Optional<Set<Information>> candidates() {
+            return Optional.of(byState.find(set.stream()));
+          }
+
           @Override
           protected boolean check(Action action, Information info) {
             return set.contains(info.lastState);
@@ -1226,6 +1466,11 @@ public final class ActionProcessor
       public Filter tags(Stream<String> tags) {
         final var tagSet = tags.collect(Collectors.toSet());
         return new Filter() {
+          @Override
+          protected Optional<Set<Information>> candidates() {
+            return Optional.of(byTag.find(tagSet.stream()));
+          }
+
           @Override
           protected boolean check(Action action, Information info) {
             return Stream.concat(info.tags.stream(), action.tags()).anyMatch(tagSet::contains);
@@ -1261,6 +1506,11 @@ public final class ActionProcessor
         final var set = types.collect(Collectors.toSet());
         return new Filter() {
 
+          @Override
+          protected Optional<Set<Information>> candidates() {
+            return Optional.of(byType.find(set.stream()));
+          }
+
           @Override
           protected boolean check(Action action, Information info) {
             return set.contains(action.type());
@@ -1278,6 +1528,11 @@ public final class ActionProcessor
   public Filter fromSourceLocation(SourceLocation location) {
     return new Filter() {
 
+      @Override
+      protected Optional<Set<Information>> candidates() {
+        return Optional.of(byLocation.find(Stream.of(location)));
+      }
+
       @Override
       protected boolean check(Action action, Information info) {
         return info.locations.contains(location);
@@ -1417,6 +1672,36 @@ public final class ActionProcessor
     }
   }
 
+  /**
+   * Add an action's self-determined tags to the tag index
+   *
+   * <p>Self-determined tags can change, but they are expected to only change when the action is
+   * performed, so they are indexed when the action is created and after every attempt to perform
+   * it. Tags the action drops are left in the index.
+   */
+  private void indexSelfTags(Action action, Information information) {
+    action.tags().forEach(tag -> indexTag(information, tag));
+  }
+
+  private void indexTag(Information information, String tag) {
+    if (addIfMissing(information.indexedTags, tag)) {
+      byTag.add(tag, information);
+    }
+  }
+
+  /** Check that a scheduled check has not been superseded or the action purged */
+  private boolean isCurrent(ScheduledCheck check) {
+    return check.generation == check.information.scheduleGeneration.get()
+        && !check.information.updateInProgress
+        && byFingerprint.get(check.information.fingerprint) == check.information;
+  }
+
+  private void markJournalDirty(Action action) {
+    if (journal.isPresent()) {
+      journalDirty.add(action);
+    }
+  }
+
   @Override
   public boolean isOverloaded(String... services) {
     return false;
@@ -1444,7 +1729,7 @@ public final class ActionProcessor
       actionNode = RuntimeSupport.MAPPER.createObjectNode();
     }
     final var node = actionNode;
-    node.put("actionId", entry.getValue().id);
+    node.put("actionId", entry.getValue().id());
     node.put("updateInProgress", entry.getValue().updateInProgress);
     node.put("state", entry.getValue().lastState.name());
     node.put("created", entry.getValue().created.toEpochMilli());
@@ -1540,11 +1825,10 @@ public final class ActionProcessor
   public long purge(Filter... filters) {
     final var deadActions =
         startStream(filters)
-            .peek(e -> stateCount.labels(e.getValue().lastState.name(), e.getKey().type()).dec())
             .map(Entry::getKey)
             .collect(Collectors.toSet());
     deadActions.forEach(Action::purgeCleanup);
-    actions.keySet().removeAll(deadActions);
+    removeActions(deadActions);
     return deadActions.size();
   }
 
@@ -1601,14 +1885,136 @@ public final class ActionProcessor
     return sourceLocations.stream();
   }
 
+  /** Remove actions from the processor and all the indices */
+  private void removeActions(Collection<Action> deadActions) {
+    for (final var action : deadActions) {
+      final var information = actions.remove(action);
+      if (information == null) {
+        continue;
+      }
+      // A perform or olive may still be using the information, so they must agree on whether it
+      // can be indexed
+      synchronized (information) {
+        information.purged = true;
+        byFingerprint.remove(information.fingerprint, information);
+        if (journal.isPresent()) {
+          journalDirty.remove(action);
+          journalRemoved.add(information.fingerprint);
+        }
+        stateCount.labels(information.lastState.name(), action.type()).dec();
+        updateTransitionTimes(
+            action.type(), information.lastState, information.lastStateTransition, null, null);
+        byType.remove(action.type(), information);
+        byState.remove(information.lastState, information);
+        for (final var location : information.locations) {
+          byLocation.remove(location, information);
+          byFile.remove(location.fileName(), information);
+        }
+        for (final var tag : information.indexedTags) {
+          byTag.remove(tag, information);
+        }
+      }
+    }
+  }
+
+  /**
+   * Add a new action to the indices and counters and schedule it to be performed
+   *
+   * <p>The action must already be in the action map.
+   */
+  private void register(Action action, Information information) {
+    synchronized (information) {
+      if (information.purged) {
+        return;
+      }
+      byType.add(action.type(), information);
+      byState.add(information.lastState, information);
+      for (final var location : information.locations) {
+        byLocation.add(location, information);
+        byFile.add(location.fileName(), information);
+      }
+      for (final var tag : information.tags) {
+        indexTag(information, tag);
+      }
+      indexSelfTags(action, information);
+      stateCount.labels(information.lastState.name(), action.type()).inc();
+      updateTransitionTimes(
+          action.type(), null, null, information.lastState, information.lastStateTransition);
+      markJournalDirty(action);
+    }
+    schedule(action, information);
+  }
+
+  /**
+   * Restore the state of a new action from the journal, if it was present before a restart
+   *
+   * <p>This allows the action to keep its state and check time, rather than every action being
+   * performed immediately after a restart. Only the processor's information about the action is
+   * restored; the action itself will have to recover any internal state the next time it is
+   * performed. Actions that were restored in a state where they would not normally be performed
+   * again are performed once anyway so that they can do this.
+   */
+  private void restore(Information information) {
+    journal
+        .flatMap(j -> j.claim(information.fingerprint))
+        .ifPresent(
+            entry -> {
+              information.lastChecked = entry.lastChecked();
+              information.lastState = entry.state();
+              information.lastStateTransition = entry.lastStateTransition();
+              information.locations.addAll(entry.locations());
+              information.tags.addAll(entry.tags());
+              information.restored = true;
+            });
+  }
+
+  /**
+   * Schedule an action to be performed once its retry interval has elapsed
+   *
+   * <p>Any previously scheduled check of the action is cancelled. Actions that have succeeded or
+   * are zombies are never performed again, so they are not scheduled, unless they were restored
+   * from the journal and have not been performed since.
+   */
+  private void schedule(Action action, Information information) {
+    final var generation = information.scheduleGeneration.incrementAndGet();
+    if (information.restored
+        || information.lastState != ActionState.SUCCEEDED
+            && information.lastState != ActionState.ZOMBIE) {
+      waiting.add(
+          new ScheduledCheck(
+              action,
+              information,
+              generation,
+              information.lastChecked.plus(
+                  Math.max(10, action.retryMinutes()), ChronoUnit.MINUTES)));
+    }
+  }
+
+  @Override
+  public Stream<ConfigurationSection> listConfiguration() {
+    return bulkheads.listConfiguration();
+  }
+
   /** Begin the action processor */
-  public void start(ScheduledExecutorService executor, Predicate<SourceLocation> isOliveLive) {
+  public void start(
+      FileWatcher fileWatcher,
+      ScheduledExecutorService executor,
+      Predicate<SourceLocation> isOliveLive) {
+    bulkheads.start(fileWatcher);
     executor.scheduleWithFixedDelay(() -> this.update(isOliveLive), 5, 1, TimeUnit.MINUTES);
     executor.scheduleWithFixedDelay(this::updateAlerts, 5, 5, TimeUnit.MINUTES);
   }
 
   private Stream<Entry<Action, Information>> startStream(Filter... filters) {
-    return actions.entrySet().stream()
+    return ActionIndex.intersect(
+            Arrays.stream(filters).map(Filter::candidates).flatMap(Optional::stream))
+        .map(
+            candidates ->
+                candidates.stream()
+                    // The indices may briefly have actions that are being purged
+                    .filter(information -> !information.purged)
+                    .map(information -> Map.entry(information.action, information)))
+        .orElseGet(() -> actions.entrySet().stream())
         .filter(
             entry ->
                 Arrays.stream(filters)
@@ -1710,11 +2116,11 @@ public final class ActionProcessor
                             result = Integer.compare(rightValue.getAsInt(), leftValue.getAsInt());
                           }
                           if (result == 0) {
-                            result = left.getValue().id.compareTo(right.getValue().id);
+                            result = left.getValue().id().compareTo(right.getValue().id());
                           }
                           return result;
                         })
-            .orElse(Comparator.comparing(e -> e.getValue().id));
+            .orElse(Comparator.comparing(e -> e.getValue().id()));
     return startStream(filters)
         .sorted(comparator)
         .peek(e -> e.getKey().sortKeys().forEach(availableSortKeys))
@@ -1729,37 +2135,41 @@ public final class ActionProcessor
   private void update(Predicate<SourceLocation> isOliveLive) {
 
     final var now = Instant.now();
-    final var candidates =
-        actions.entrySet().stream()
-            .filter(
-                entry ->
-                    entry.getValue().lastState != ActionState.SUCCEEDED
-                        && entry.getValue().lastState != ActionState.ZOMBIE
-                        && !entry.getValue().updateInProgress
-                        && Duration.between(entry.getValue().lastChecked, now).toMinutes()
-                            >= Math.max(10, entry.getKey().retryMinutes()))
-            /*
-             * Sort by time since last checked, and then priority, to avoid starving actions of
-             * attention because of priority, then sort by their ActionState's processPriority so
-             * that certain ActionStates get checked first.
-             */
-            .sorted(
-                Comparator.<Map.Entry<Action, Information>>comparingLong(
-                        e ->
-                            Duration.between(
-                                        now,
-                                        e.getValue().lastChecked == null
-                                            ? e.getValue().created
-                                            : e.getValue().lastChecked)
-                                    .getSeconds()
-                                / 600)
-                    .thenComparingInt(e -> e.getKey().priority()))
-            .sorted(Map.Entry.comparingByValue())
-            .limit(1000L * ACTION_PERFORM_THREADS - currentRunningActions.get())
-            .collect(Collectors.toList());
+    // Move every check that has come due into the ready queue; checks that are stale because the
+    // action was rescheduled or purged are dropped here or when they leave the ready queue
+    for (var check = waiting.peek();
+        check != null && !check.due.isAfter(now);
+        check = waiting.peek()) {
+      // Another thread may have added an earlier check since we peeked, but it must also be due
+      check = waiting.poll();
+      if (isCurrent(check)) {
+        ready.add(check);
+      }
+    }
+    final List<Pair<Entry<Action, Information>, ActionBulkheads.Bulkhead>> candidates =
+        new ArrayList<>();
+    // Actions whose type has too many actions waiting to be performed; they will go back in the
+    // ready queue for the next round
+    final List<ScheduledCheck> deferred = new ArrayList<>();
+    final var capacity = 1000L * ACTION_PERFORM_THREADS - currentRunningActions.get();
+    while (candidates.size() < capacity && !ready.isEmpty()) {
+      final var check = ready.poll();
+      if (isCurrent(check)) {
+        final var bulkhead = bulkheads.get(check.action.type());
+        if (bulkhead.tryReserve()) {
+          candidates.add(new Pair<>(Map.entry(check.action, check.information), bulkhead));
+        } else {
+          deferred.add(check);
+        }
+      }
+    }
+    ready.addAll(deferred);
     currentRunningActionsGauge.set(currentRunningActions.addAndGet(candidates.size()));
 
-    for (final var entry : candidates) {
+    for (final var candidate : candidates) {
+      final var entry = candidate.first();
+      final var bulkhead = candidate.second();
+      final var queuedTime = System.nanoTime();
       entry.getValue().updateInProgress = true;
       final var location =
           entry.getValue().locations.stream()
@@ -1770,11 +2180,19 @@ public final class ActionProcessor
           Server.inflight(
               String.format(
                   "Waiting to perform %s action %s from %s",
-                  entry.getKey().type(), entry.getValue().id, location));
+                  entry.getKey().type(), entry.getValue().id(), location));
       final var timeoutFuture = new CompletableFuture<Boolean>();
       final var workFuture =
           CompletableFuture.supplyAsync(
               () -> {
+                try {
+                  bulkhead.throttle();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+                actionQueueWaitTime
+                    .labels(entry.getKey().type())
+                    .observe((System.nanoTime() - queuedTime) / 1e9);
                 // We wait to schedule the timeout for when the action is actually
                 // starting
                 final var timeout = entry.getKey().performTimeout().abs();
@@ -1783,7 +2201,10 @@ public final class ActionProcessor
                     Math.max(timeout.getSeconds(), 60),
                     TimeUnit.SECONDS);
                 entry.getValue().lastChecked = Instant.now();
-                final var oldState = entry.getValue().lastState;
+                if (!entry.getValue().acceptedNotified) {
+                  entry.getValue().acceptedNotified = true;
+                  entry.getKey().accepted(entry.getValue().id());
+                }
                 final var oldThrown = entry.getValue().thrown != null;
                 queuedInflight.run();
                 try (var timer = actionPerformTime.start(entry.getKey().type());
@@ -1791,8 +2212,10 @@ public final class ActionProcessor
                         Server.inflightCloseable(
                             String.format(
                                 "Performing %s action %s from %s",
-                                entry.getKey().type(), entry.getValue().id, location))) {
-                  entry.getValue().lastState =
+                                entry.getKey().type(), entry.getValue().id(), location))) {
+                  updateState(
+                      entry.getKey(),
+                      entry.getValue(),
                       entry.getValue().locations.stream()
                               .anyMatch(
                                   l ->
@@ -1804,27 +2227,34 @@ public final class ActionProcessor
                               .perform(
                                   actionServices,
                                   Duration.between(now, entry.getValue().lastAdded),
-                                  entry.getValue().locations.stream().anyMatch(isOliveLive));
+                                  entry.getValue().locations.stream().anyMatch(isOliveLive)));
                   entry.getValue().thrown = null;
                 } catch (final Throwable e) {
-                  entry.getValue().lastState = ActionState.UNKNOWN;
+                  updateState(entry.getKey(), entry.getValue(), ActionState.UNKNOWN);
                   entry.getValue().thrown = "Exception thrown during evaluation: " + e;
                   e.printStackTrace();
                   if (e instanceof Error) {
+                    bulkhead.release();
                     throw (Error) e;
                   }
                 }
-                if (oldState != entry.getValue().lastState) {
-                  entry.getValue().lastStateTransition = Instant.now();
-                  stateCount.labels(oldState.name(), entry.getKey().type()).dec();
-                  stateCount.labels(entry.getValue().lastState.name(), entry.getKey().type()).inc();
+                synchronized (entry.getValue()) {
+                  // If the action was purged while it was being performed, leave it out of the
+                  // indices and the journal
+                  if (!entry.getValue().purged) {
+                    indexSelfTags(entry.getKey(), entry.getValue());
+                    markJournalDirty(entry.getKey());
+                  }
                 }
                 actionThrows.inc((entry.getValue().thrown != null ? 0 : 1) - (oldThrown ? 0 : 1));
+                entry.getValue().restored = false;
                 entry.getValue().updateInProgress = false;
+                schedule(entry.getKey(), entry.getValue());
                 currentRunningActionsGauge.set(currentRunningActions.decrementAndGet());
+                bulkhead.release();
                 return false;
               },
-              workExecutor);
+              bulkhead.executor());
       CompletableFuture.anyOf(timeoutFuture, workFuture)
           .thenAcceptAsync(
               o -> {
@@ -1834,21 +2264,14 @@ public final class ActionProcessor
     }
     scheduledInRound.set(candidates.size());
     lastRun.setToCurrentTime();
-    final var lastTransitions =
-        actions.entrySet().stream()
-            .collect(
-                Collectors.groupingBy(
-                    (Entry<Action, Information> e) ->
-                        new Pair<>(e.getValue().lastState, e.getKey().type()),
-                    Collectors.mapping(
-                        (Entry<Action, Information> e) -> e.getValue().lastStateTransition,
-                        Collectors.maxBy(Comparator.naturalOrder()))));
+    writeJournal();
     for (final var actionType : knownActionTypes) {
       for (final var state : ActionState.values()) {
-        final var time =
-            lastTransitions
-                .getOrDefault(new Pair<>(state, actionType), Optional.empty())
-                .orElse(null);
+        final Instant time;
+        synchronized (transitionTimes) {
+          final var times = transitionTimes.get(new Pair<>(state, actionType));
+          time = times == null ? null : times.lastKey();
+        }
         if (time == null) {
           oldest.remove(state.name(), actionType);
         } else {
@@ -1871,4 +2294,113 @@ public final class ActionProcessor
       manager.pushAlerts(currentAlerts);
     }
   }
+
+  /**
+   * Change the state of an action and update the state index
+   *
+   * <p>The action is added to the new state's index before it is removed from the old one, so a
+   * concurrent query will always be able to find it.
+   */
+  private void updateState(Action action, Information information, ActionState state) {
+    synchronized (information) {
+      final var oldState = information.lastState;
+      if (oldState == state) {
+        return;
+      }
+      final var now = Instant.now();
+      if (information.purged) {
+        // The action has already been removed from the indices and counters, so don't put it back
+        information.lastState = state;
+        information.lastStateTransition = now;
+        return;
+      }
+      final var oldTransition = information.lastStateTransition;
+      byState.add(state, information);
+      information.lastState = state;
+      information.lastStateTransition = now;
+      byState.remove(oldState, information);
+      stateCount.labels(oldState.name(), action.type()).dec();
+      stateCount.labels(state.name(), action.type()).inc();
+      updateTransitionTimes(action.type(), oldState, oldTransition, state, now);
+      markJournalDirty(action);
+    }
+    // If the action is being performed, it will be rescheduled when it finishes
+    if (!information.updateInProgress) {
+      schedule(action, information);
+    }
+  }
+
+  /**
+   * Move an action's state transition time from one state to another
+   *
+   * @param type the action type
+   * @param oldState the state the action is leaving or null if the action is new
+   * @param oldTime the time the action entered the old state
+   * @param newState the state the action is entering or null if the action is being removed
+   * @param newTime the time the action entered the new state
+   */
+  private void updateTransitionTimes(
+      String type, ActionState oldState, Instant oldTime, ActionState newState, Instant newTime) {
+    synchronized (transitionTimes) {
+      if (oldState != null) {
+        final var key = new Pair<>(oldState, type);
+        final var times = transitionTimes.get(key);
+        if (times != null) {
+          times.computeIfPresent(oldTime, (k, count) -> count == 1 ? null : count - 1);
+          if (times.isEmpty()) {
+            transitionTimes.remove(key);
+          }
+        }
+      }
+      if (newState != null) {
+        transitionTimes
+            .computeIfAbsent(new Pair<>(newState, type), k -> new TreeMap<>())
+            .merge(newTime, 1, Integer::sum);
+      }
+    }
+  }
+
+  /** Write any changed actions to the journal, compacting it if it has grown too large */
+  private void writeJournal() {
+    journal.ifPresent(
+        j -> {
+          try (var inflight = Server.inflightCloseable("Writing action journal")) {
+            if (j.needsCompaction(actions.size())) {
+              // Anything that changes after the queues are cleared will be marked again, so it
+              // will be written after compaction
+              journalDirty.clear();
+              journalRemoved.clear();
+              j.compact(actions.values().stream().map(ActionProcessor::journalEntry));
+            } else {
+              // Actions are taken off the queues before their state is read, so any change made
+              // while writing will be written next time
+              final List<Action> dirty = new ArrayList<>();
+              final List<ActionJournal.Entry> updates = new ArrayList<>();
+              for (final var action : journalDirty) {
+                journalDirty.remove(action);
+                dirty.add(action);
+                final var information = actions.get(action);
+                if (information != null) {
+                  updates.add(journalEntry(information));
+                }
+              }
+              final List<ActionFingerprint> removals = new ArrayList<>();
+              for (ActionFingerprint fingerprint; (fingerprint = journalRemoved.poll()) != null; ) {
+                removals.add(fingerprint);
+              }
+              try {
+                j.write(updates.stream(), removals.stream());
+              } catch (IOException | RuntimeException e) {
+                // Put everything back so it is written next time; writing a record twice is
+                // harmless
+                journalRemoved.addAll(removals);
+                journalDirty.addAll(dirty);
+                throw e;
+              }
+            }
+          } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+          }
+        });
+  }
 }
@@ -0,0 +1,241 @@
+package ca.on.oicr.gsi.shesmu.server;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor for work that spends most of its time blocked on network I/O, such as performing
+ * actions and running olives that fetch input data
+ *
+ * <p>Normally, this is a pool of platform threads, one for each task that can run at once. If the
+ * <code>SHESMU_VIRTUAL_THREADS</code> environment variable is set to a positive integer and the JVM
+ * supports virtual threads, every task is run on its own virtual thread instead and the number of
+ * tasks running at once is limited by a semaphore. Since virtual threads are cheap, the limit is
+ * multiplied by the value of the environment variable.
+ *
+ * <p>This is only used for performing actions (including the per-type action pools) and running
+ * olives. Background cache refreshes, the server's housekeeping scheduler, and the web request
+ * pool always use platform threads. Plugins' HTTP requests use virtual threads only when they
+ * are made while an action is being performed or an olive is running.
+ */
+public abstract class BlockingExecutor extends AbstractExecutorService {
+  private static final class PlatformExecutor extends BlockingExecutor {
+    private final ThreadPoolExecutor pool;
+
+    private PlatformExecutor(
+        String prefix, int priority, int concurrency, boolean releaseIdleThreads) {
+      pool =
+          new ThreadPoolExecutor(
+              concurrency,
+              concurrency,
+              1,
+              TimeUnit.MINUTES,
+              new LinkedBlockingQueue<>(),
+              new ShesmuThreadFactory(prefix, priority));
+      pool.allowCoreThreadTimeOut(releaseIdleThreads);
+    }
+
+    @Override
+    protected ExecutorService backing() {
+      return pool;
+    }
+
+    @Override
+    public int concurrency() {
+      return pool.getMaximumPoolSize();
+    }
+
+    @Override
+    public synchronized void concurrency(int concurrency) {
+      // The core size must never exceed the maximum size, so change them in a safe order
+      if (concurrency > pool.getMaximumPoolSize()) {
+        pool.setMaximumPoolSize(concurrency);
+        pool.setCorePoolSize(concurrency);
+      } else {
+        pool.setCorePoolSize(concurrency);
+        pool.setMaximumPoolSize(concurrency);
+      }
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+      pool.execute(runnable);
+    }
+  }
+
+  /** A semaphore whose number of permits can be reduced */
+  private static final class ResizableSemaphore extends Semaphore {
+    private ResizableSemaphore(int permits) {
+      super(permits, true);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
+  }
+
+  private static final class VirtualExecutor extends BlockingExecutor {
+    private final ExecutorService backing;
+    private int concurrency;
+    private final ResizableSemaphore permits;
+
+    private VirtualExecutor(ExecutorService backing, int concurrency) {
+      this.backing = backing;
+      this.concurrency = concurrency;
+      permits = new ResizableSemaphore(concurrency);
+    }
+
+    @Override
+    protected ExecutorService backing() {
+      return backing;
+    }
+
+    @Override
+    public synchronized int concurrency() {
+      return concurrency;
+    }
+
+    @Override
+    public synchronized void concurrency(int concurrency) {
+      if (concurrency > this.concurrency) {
+        permits.release(concurrency - this.concurrency);
+      } else if (concurrency < this.concurrency) {
+        permits.reducePermits(this.concurrency - concurrency);
+      }
+      this.concurrency = concurrency;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+      backing.execute(
+          () -> {
+            // Waiting is cheap on a virtual thread, so the task waits here rather than in a queue
+            permits.acquireUninterruptibly();
+            try {
+              runnable.run();
+            } finally {
+              permits.release();
+            }
+          });
+    }
+  }
+
+  private static final int VIRTUAL_THREAD_FACTOR =
+      Optional.ofNullable(System.getenv("SHESMU_VIRTUAL_THREADS"))
+          .map(
+              value -> {
+                try {
+                  return Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                  System.err.printf("Invalid value for SHESMU_VIRTUAL_THREADS: %s\n", value);
+                  return 0;
+                }
+              })
+          .orElse(0);
+
+  /**
+   * Create a new executor
+   *
+   * @param prefix the prefix for the names of the threads created
+   * @param priority the priority for platform threads; virtual threads have no priority
+   * @param concurrency the number of tasks that can run at once (before scaling for virtual
+   *     threads)
+   * @param releaseIdleThreads if true, platform threads that have been idle for a minute are
+   *     stopped; otherwise, the pool keeps all its threads once they have started
+   */
+  public static BlockingExecutor create(
+      String prefix, int priority, int concurrency, boolean releaseIdleThreads) {
+    if (VIRTUAL_THREAD_FACTOR > 0) {
+      final var virtual = virtualThreadExecutor(prefix);
+      if (virtual.isPresent()) {
+        return new VirtualExecutor(virtual.get(), concurrency * VIRTUAL_THREAD_FACTOR);
+      }
+    }
+    return new PlatformExecutor(prefix, priority, concurrency, releaseIdleThreads);
+  }
+
+  /**
+   * Create a thread-per-task executor using virtual threads, if the JVM supports them
+   *
+   * <p>This is done using reflection so that Shesmu can still be built for and run on JVMs without
+   * virtual threads.
+   */
+  private static Optional<ExecutorService> virtualThreadExecutor(String prefix) {
+    try {
+      final var builderClass = Class.forName("java.lang.Thread$Builder");
+      var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder =
+          builderClass
+              .getMethod("name", String.class, long.class)
+              .invoke(builder, prefix + "-", 0L);
+      builder =
+          builderClass
+              .getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class)
+              .invoke(
+                  builder,
+                  (Thread.UncaughtExceptionHandler) ShesmuThreadFactory::unhandledException);
+      final var factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      return Optional.of(
+          (ExecutorService)
+              Executors.class
+                  .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                  .invoke(null, factory));
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      System.err.printf(
+          "Virtual threads requested for %s, but they are not available on this JVM: %s\n",
+          prefix, e);
+      return Optional.empty();
+    }
+  }
+
+  private BlockingExecutor() {}
+
+  @Override
+  public final boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return backing().awaitTermination(timeout, unit);
+  }
+
+  protected abstract ExecutorService backing();
+
+  /** The number of tasks that can run at once */
+  public abstract int concurrency();
+
+  /**
+   * Change the number of tasks that can run at once
+   *
+   * <p>Unlike {@link #create(String, int, int, boolean)}, this limit is not scaled for virtual
+   * threads, so it can be used to enforce a limit imposed by another system.
+   *
+   * @param concurrency the new limit
+   */
+  public abstract void concurrency(int concurrency);
+
+  @Override
+  public final boolean isShutdown() {
+    return backing().isShutdown();
+  }
+
+  @Override
+  public final boolean isTerminated() {
+    return backing().isTerminated();
+  }
+
+  @Override
+  public final void shutdown() {
+    backing().shutdown();
+  }
+
+  @Override
+  public final List<Runnable> shutdownNow() {
+    return backing().shutdownNow();
+  }
+}
@@ -63,6 +63,23 @@ public class MasterRunner {
               return isDuplicated;
             }
 
+            @Override
+            public boolean accept(
+                Action action,
+                ActionFingerprint fingerprint,
+                String filename,
+                int line,
+                int column,
+                String hash,
+                String[] tags) {
+              final var isDuplicated =
+                  services.accept(action, fingerprint, filename, line, column, hash, tags);
+              if (isDuplicated) {
+                currentActionDuplicates.incrementAndGet();
+              }
+              return isDuplicated;
+            }
+
             @Override
             public boolean accept(
                 String[] labels,
@@ -1,14 +1,18 @@
 package ca.on.oicr.gsi.shesmu.server;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class ShesmuThreadFactory implements ThreadFactory {
+public class ShesmuThreadFactory implements ThreadFactory, ForkJoinWorkerThreadFactory {
   public static void unhandledException(Thread thread, Throwable throwable) {
     System.err.printf("Unhandled error in thread %s (%d)\n", thread.getName(), thread.getId());
     throwable.printStackTrace();
   }
 
-  private int id;
+  private final AtomicInteger id = new AtomicInteger();
   private final String prefix;
   private final int priority;
 
@@ -17,10 +21,18 @@ public class ShesmuThreadFactory implements ThreadFactory {
     this.priority = priority;
   }
 
+  @Override
+  public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+    final var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+    thread.setName(prefix + "-" + id.getAndIncrement());
+    thread.setPriority(priority);
+    return thread;
+  }
+
   @Override
   public Thread newThread(Runnable runnable) {
     final var thread = new Thread(runnable);
-    thread.setName(prefix + "-" + id++);
+    thread.setName(prefix + "-" + id.getAndIncrement());
     thread.setPriority(priority);
     thread.setUncaughtExceptionHandler(ShesmuThreadFactory::unhandledException);
     return thread;
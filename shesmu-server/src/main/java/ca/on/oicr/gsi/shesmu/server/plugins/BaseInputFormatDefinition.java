@@ -8,6 +8,7 @@ import ca.on.oicr.gsi.shesmu.compiler.definitions.InputFormatDefinition;
 import ca.on.oicr.gsi.shesmu.compiler.definitions.InputVariable;
 import ca.on.oicr.gsi.shesmu.plugin.ErrorableStream;
 import ca.on.oicr.gsi.shesmu.plugin.PluginFile;
+import ca.on.oicr.gsi.shesmu.plugin.Interner;
 import ca.on.oicr.gsi.shesmu.plugin.Tuple;
 import ca.on.oicr.gsi.shesmu.plugin.authentication.AuthenticationConfiguration;
 import ca.on.oicr.gsi.shesmu.plugin.cache.InitialCachePopulationException;
@@ -372,6 +373,8 @@ public abstract class BaseInputFormatDefinition implements InputFormatDefinition
               Type.getType(MethodType.class),
               Type.getType(String.class)),
           false);
+  private static final boolean INTERN_VALUES =
+      Boolean.parseBoolean(System.getenv("SHESMU_INTERN_INPUT"));
   private static final Map<Pair<String, String>, CallSite> INPUT_VARIABLES_REGISTRY =
       new ConcurrentHashMap<>();
   private static final Lookup LOOKUP = MethodHandles.lookup();
@@ -537,7 +540,9 @@ public abstract class BaseInputFormatDefinition implements InputFormatDefinition
   private Tuple readJson(ObjectNode node) {
     final var values = new Object[variables.size()];
     for (var i = 0; i < values.length; i++) {
-      values[i] = variables.get(i).read(node);
+      final var value = variables.get(i).read(node);
+      // Only values read from JSON can be interned; objects from plugin sources are used as-is
+      values[i] = INTERN_VALUES ? Interner.intern(value) : value;
     }
     return new Tuple(values);
   }
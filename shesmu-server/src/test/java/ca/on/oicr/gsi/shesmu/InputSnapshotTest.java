@@ -0,0 +1,46 @@
+package ca.on.oicr.gsi.shesmu;
+
+import ca.on.oicr.gsi.shesmu.runtime.InputSnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InputSnapshotTest {
+
+  private static List<Object> records(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> (Object) ("record" + i))
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  @Test
+  public void testChanged() {
+    final var data = records(20_000);
+    final var first = InputSnapshot.update(InputSnapshot.EMPTY, data.stream());
+    data.set(19_999, "changed");
+    final var changed = InputSnapshot.update(first, data.stream());
+    Assertions.assertNotSame(first, changed, "Snapshot with modified record was reused.");
+    Assertions.assertEquals(data, changed);
+    data.add("extra");
+    final var grown = InputSnapshot.update(changed, data.stream());
+    Assertions.assertEquals(data, grown);
+    final var shrunk = InputSnapshot.update(grown, data.subList(0, 8192).stream());
+    Assertions.assertEquals(data.subList(0, 8192), shrunk);
+    Assertions.assertEquals(0, InputSnapshot.update(shrunk, data.stream().limit(0)).size());
+  }
+
+  @Test
+  public void testUnchanged() {
+    final var data = records(20_000);
+    final var first = InputSnapshot.update(InputSnapshot.EMPTY, data.stream());
+    Assertions.assertEquals(data, first);
+    Assertions.assertSame(
+        first,
+        InputSnapshot.update(first, data.stream()),
+        "Snapshot with identical records was replaced.");
+    Assertions.assertEquals(data.size(), first.parallelStream().count());
+  }
+}
@@ -57,8 +57,9 @@ public class RunTest {
     private int bad;
     private int good;
 
+    // Scripts using the Parallel pragma can produce actions and alerts from multiple threads
     @Override
-    public boolean accept(
+    public synchronized boolean accept(
         Action action, String filename, int line, int column, String hash, String[] tags) {
       if (action.perform(null, Duration.ZERO, true) == ActionState.SUCCEEDED) {
         good++;
@@ -69,7 +70,7 @@ public class RunTest {
     }
 
     @Override
-    public boolean accept(
+    public synchronized boolean accept(
         String[] labels,
         String[] annotation,
         long ttl,
@@ -148,6 +149,9 @@ public class RunTest {
   }
 
   private static class InputProviderChecker implements InputProvider {
+    private int groupCalls;
+    // Like the server, build each join table once and share it with every olive that asks for it
+    private final Map<Map.Entry<String, String>, Map<?, List<Object>>> tables = new HashMap<>();
     private final Set<String> usedFormats = new HashSet<>();
 
     public Stream<Object> fetch(String format) {
@@ -160,10 +164,25 @@ public class RunTest {
       };
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <K> Map<K, List<Object>> group(
+        String format, String key, Function<Object, K> makeKey) {
+      groupCalls++;
+      return (Map<K, List<Object>>)
+          tables.computeIfAbsent(
+              Map.entry(format, key), k -> InputProvider.super.group(format, key, makeKey));
+    }
+
     public boolean ok(ActionGenerator generator) {
       return generator.inputs().count() == usedFormats.size()
           && generator.inputs().allMatch(usedFormats::contains);
     }
+
+    /** Check that at least one join table was used by more than one olive */
+    public boolean shared() {
+      return groupCalls > tables.size();
+    }
   }
 
   public static class OkAction extends Action {
@@ -577,7 +596,8 @@ public class RunTest {
       generator.run(checker, input);
       if ((checker.ok() || REFILL_OKAY.get())
               != file.getFileName().toString().endsWith("-fail.shesmu")
-          && input.ok(generator)) {
+          && input.ok(generator)
+          && (!file.getFileName().toString().endsWith("-shared.shesmu") || input.shared())) {
         System.err.printf("OK %s\n", file.getFileName());
         return false;
       } else {
@@ -0,0 +1,44 @@
+package ca.on.oicr.gsi.shesmu.runtime;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JoinTablesTest {
+
+  private static Supplier<Stream<Object>> counting(AtomicInteger builds) {
+    return () -> {
+      builds.incrementAndGet();
+      return Stream.of("a", "bb", "cc", "ddd");
+    };
+  }
+
+  @Test
+  public void testDifferentKeys() {
+    final var tables = new JoinTables();
+    final var builds = new AtomicInteger();
+    final var byLength = tables.get("test", "length", counting(builds), r -> ((String) r).length());
+    final var byFirst = tables.get("test", "first", counting(builds), r -> ((String) r).charAt(0));
+    Assertions.assertEquals(2, builds.get(), "Tables for different keys were shared.");
+    Assertions.assertEquals(List.of("bb", "cc"), byLength.get(2));
+    Assertions.assertEquals(List.of("ddd"), byFirst.get('d'));
+  }
+
+  @Test
+  public void testSameKey() {
+    final var tables = new JoinTables();
+    final var builds = new AtomicInteger();
+    final var first = tables.get("test", "length", counting(builds), r -> ((String) r).length());
+    final var second = tables.get("test", "length", counting(builds), r -> ((String) r).length());
+    Assertions.assertEquals(1, builds.get(), "Table for the same key was built twice.");
+    Assertions.assertSame(first, second);
+    Assertions.assertEquals(List.of("bb", "cc"), second.get(2));
+    final var nextRound =
+        new JoinTables().get("test", "length", counting(builds), r -> ((String) r).length());
+    Assertions.assertEquals(2, builds.get(), "Table was shared between rounds.");
+    Assertions.assertNotSame(first, nextRound);
+  }
+}
@@ -0,0 +1,96 @@
+package ca.on.oicr.gsi.shesmu.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ActionFingerprintTest {
+  private static final String INPUT = "The quick brown fox jumps over the lazy dog";
+
+  // MurmurHash3_x64_128 with seed 0 of each prefix of INPUT; the full string matches the widely
+  // published value 6c1b07bc7bbc4be347939ac4a93c437a (as little-endian bytes)
+  private static final long[][] PREFIXES = {
+    {0, 0x0000000000000000L, 0x0000000000000000L},
+    {1, 0x8c03777e9184689aL, 0x3ab5d6b4ba293e79L},
+    {2, 0xd7dd0beaee68e3b9L, 0xa56fb69099026b97L},
+    {3, 0x304f2652dcd66d9aL, 0xef385e5d15eabf42L},
+    {4, 0xbd4301beaba07d9cL, 0xdfae3c4b8026dd1cL},
+    {5, 0x6f7aac75205270feL, 0x76f5ebd390dac61fL},
+    {6, 0x796e1100f3f66746L, 0xb2a07e0b1665ab1fL},
+    {7, 0xf0d3843a5abcd5c9L, 0x9394b7f9c86d6073L},
+    {8, 0x644baae4ad5b71cdL, 0x8eeef997e2881cdfL},
+    {9, 0x37a06404b2a8f155L, 0xadbcc8ff3d6eccc0L},
+    {10, 0x420e44df457484b8L, 0x9cabadd477515fe9L},
+    {11, 0x87c320550739a882L, 0xfa91e8a5d66e7b9fL},
+    {12, 0x61d6a1372f90f9cbL, 0xb66353ea7c002529L},
+    {13, 0x3c600c93f99bfd3bL, 0xc3e13319056f26f4L},
+    {14, 0xdcd216a95d6e6007L, 0x84c1eeb85c46c838L},
+    {15, 0x48137cb864e39216L, 0xfd7baf64397ad64bL},
+    {16, 0x9d1244f4af9b32c4L, 0x3d153c8b2c2a3aa6L},
+    {17, 0x91f96376e757e9aeL, 0x9b44e58dae83eb0cL},
+    {31, 0x9b28b5ddd9c4c509L, 0x0d3c1cb80fe2f964L},
+    {32, 0xdf6af91bb29bdacfL, 0x91a341c58df1f3a6L},
+    {33, 0x68d135cdab7bb3ddL, 0xe617f8470728bb01L},
+    {43, 0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L},
+  };
+
+  private static ActionFingerprint hash(int seed, byte[] data, int chunk) {
+    final var hasher = new ActionFingerprint.Hasher(seed);
+    for (var offset = 0; offset < data.length; offset += chunk) {
+      hasher.accept(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + chunk)));
+    }
+    return hasher.finish();
+  }
+
+  private static void putLittleEndian(byte[] output, int offset, long value) {
+    for (var i = 0; i < 8; i++) {
+      output[offset + i] = (byte) (value >>> (8 * i));
+    }
+  }
+
+  @Test
+  public void testChunking() {
+    final var data = INPUT.getBytes(StandardCharsets.UTF_8);
+    final var expected = hash(0, data, data.length);
+    for (var chunk = 1; chunk < data.length; chunk++) {
+      Assertions.assertEquals(
+          expected, hash(0, data, chunk), "Hash changed when fed in chunks of " + chunk);
+    }
+    final var hasher = new ActionFingerprint.Hasher();
+    hasher.accept(new byte[0]);
+    hasher.accept(data);
+    hasher.accept(new byte[0]);
+    Assertions.assertEquals(expected, hasher.finish(), "Empty chunks changed hash");
+  }
+
+  @Test
+  public void testPrefixes() {
+    final var data = INPUT.getBytes(StandardCharsets.UTF_8);
+    for (final var prefix : PREFIXES) {
+      final var length = (int) prefix[0];
+      Assertions.assertEquals(
+          new ActionFingerprint(prefix[1], prefix[2]),
+          hash(0, Arrays.copyOf(data, length), Math.max(length, 1)),
+          "Incorrect hash for " + length + " bytes");
+    }
+  }
+
+  @Test
+  public void testVerification() {
+    // The check from SMHasher: hash the keys {}, {0}, {0, 1}, ... {0, 1, ..., 254} with seeds 256
+    // down to 1, then hash the concatenated results with seed 0; the first four bytes of that hash
+    // as a little-endian integer are the verification value for MurmurHash3_x64_128
+    final var results = new byte[256 * 16];
+    for (var i = 0; i < 256; i++) {
+      final var key = new byte[i];
+      for (var j = 0; j < i; j++) {
+        key[j] = (byte) j;
+      }
+      final var fingerprint = hash(256 - i, key, Math.max(i, 1));
+      putLittleEndian(results, i * 16, fingerprint.high());
+      putLittleEndian(results, i * 16 + 8, fingerprint.low());
+    }
+    Assertions.assertEquals(0x6384BA69, (int) hash(0, results, results.length).high());
+  }
+}